@@ -0,0 +1,177 @@
+package oop.ex6.bench;
+
+import com.sun.management.ThreadMXBean;
+import oop.ex6.bench.CorpusGenerator.Workload;
+import oop.ex6.blocks.Block;
+import oop.ex6.blocks.CheckOptions;
+import oop.ex6.blocks.GlobalBlock;
+import oop.ex6.main.FilteredTrimmedReader;
+import oop.ex6.main.LineScanner;
+import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.Variable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput (lines per second) and the allocation rate of the parts of the
+ * checker on synthetic files, each part separately:
+ * reading lines with FilteredTrimmedReader, interpreting declarations with
+ * Variable.interpretVariables, checking statements (a file that is almost all single-line
+ * statements) and checking whole files with GlobalBlock.
+ * Every measurement is repeated after a warmup, and the median is reported.
+ * Usage: Benchmarks [size] [iterations]
+ */
+public class Benchmarks {
+
+    /*
+     * A piece of work to measure. Returns a value that depends on the work,
+     * so that the work can't be optimized away.
+     */
+    private interface Task {
+        long run() throws IOException;
+    }
+
+    // Constants.
+    private static final int DEFAULT_SIZE = 20000, DEFAULT_ITERATIONS = 10, WARMUP_ITERATIONS = 5,
+            NESTING_SIZE = 500, SIZE_LOCATION = 0, ITERATIONS_LOCATION = 1;
+    private static final long SEED = 6;
+    private static final double NANOS_PER_SECOND = 1e9, BYTES_PER_MB = 1 << 20;
+    private static final String FORMAT = "%-14s %-13s %12.0f lines/s %10.1f MB/s alloc %8.1f B/line%s%n";
+    private static final String REJECTED = "  (rejected)", REJECTED_COUNT = "  (%d rejected)";
+
+    // Variables.
+    private static volatile long sink;
+    private static ThreadMXBean threads;
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > SIZE_LOCATION ? Integer.parseInt(args[SIZE_LOCATION]) : DEFAULT_SIZE;
+        int iterations = args.length > ITERATIONS_LOCATION ? Integer.parseInt(args[ITERATIONS_LOCATION])
+                : DEFAULT_ITERATIONS;
+        threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Path directory = Files.createTempDirectory("sjava-bench");
+        try {
+            for (Workload workload : Workload.values())
+                run(workload, workload == Workload.NESTING ? NESTING_SIZE : size, iterations, directory);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator)
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    // Runs all the benchmarks of the given workload.
+    private static void run(Workload workload, int size, int iterations, Path directory) throws IOException {
+        String text = new CorpusGenerator(SEED).generate(workload, size);
+        Path file = directory.resolve(workload.name().toLowerCase() + ".sj");
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+        String[] lines = text.split("\n");
+        measure(workload, "reader", lines.length, iterations, "", () -> readAll(text));
+        List<String> declarations = declarations(text);
+        if (!declarations.isEmpty()) {
+            Block container = emptyBlock(); // Declarations that use local variables are rejected.
+            long rejected = declarations.size() - interpretAll(declarations, container);
+            measure(workload, "declarations", declarations.size(), iterations,
+                    rejected > 0 ? String.format(REJECTED_COUNT, rejected) : "",
+                    () -> interpretAll(declarations, container));
+        }
+        String fileName = file.toString();
+        String accepted = check(fileName) ? "" : REJECTED;
+        measure(workload, workload == Workload.CALLS ? "statements" : "global block", lines.length, iterations,
+                accepted, () -> check(fileName) ? 1 : 0);
+    }
+
+    // Runs the task a few times to warm up, then measures it and prints the median of the results.
+    private static void measure(Workload workload, String name, long lines, int iterations, String note, Task task)
+            throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            sink += task.run();
+        double[] linesPerSecond = new double[iterations], bytesPerLine = new double[iterations],
+                bytesPerSecond = new double[iterations];
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long allocated = threads.getThreadAllocatedBytes(thread), start = System.nanoTime();
+            sink += task.run();
+            double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+            allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+            linesPerSecond[i] = lines / seconds;
+            bytesPerLine[i] = (double) allocated / lines;
+            bytesPerSecond[i] = allocated / seconds;
+        }
+        System.out.printf(FORMAT, workload.name().toLowerCase(), name, median(linesPerSecond),
+                median(bytesPerSecond) / BYTES_PER_MB, median(bytesPerLine), note);
+    }
+
+    // Returns the median of the given values.
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    // Reads all the lines of the given text and returns their total length.
+    private static long readAll(String text) throws IOException {
+        long length = 0;
+        try (FilteredTrimmedReader reader = new FilteredTrimmedReader(new BufferedReader(new StringReader(text)))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                length += line.length();
+        } catch (SJavaFormatException e) {
+            return -1;
+        }
+        return length;
+    }
+
+    // Returns all the variable declarations of the given text, global and local.
+    private static List<String> declarations(String text) {
+        List<String> declarations = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (LineScanner.isDefinition(trimmed))
+                declarations.add(trimmed);
+        }
+        return declarations;
+    }
+
+    // Interprets all the given declarations and returns the number that were valid.
+    private static long interpretAll(List<String> declarations, Block container) {
+        long valid = 0;
+        for (String declaration : declarations)
+            try {
+                valid += Variable.interpretVariables(declaration, container).isEmpty() ? 0 : 1;
+            } catch (SJavaFormatException e) {
+                // Counted as invalid.
+            }
+        return valid;
+    }
+
+    // Returns the global scope of an empty file, for interpreting declarations in.
+    private static Block emptyBlock() throws IOException {
+        try {
+            return new GlobalBlock(new CheckOptions().source(new FilteredTrimmedReader(
+                    new BufferedReader(new StringReader("")))));
+        } catch (SJavaFormatException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Checks the given file and returns true if it's legal.
+    private static boolean check(String file) throws IOException {
+        try {
+            new GlobalBlock(file);
+            return true;
+        } catch (SJavaFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package oop.ex6.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates synthetic SJava files for benchmarking, each stressing one part of the checker.
+ * The same seed always generates the same files, so results can be compared between runs.
+ * Usage: CorpusGenerator workload size file [seed]
+ */
+public class CorpusGenerator {
+
+    /**
+     * The kinds of synthetic files.
+     */
+    public enum Workload {
+        /**
+         * Many global variables of all the types.
+         */
+        GLOBALS,
+        /**
+         * Many small methods with parameters, each calling the one before it.
+         */
+        METHODS,
+        /**
+         * A single method with deeply nested if and while blocks. (The indentation stops
+         * growing after a few levels, so the size of the file grows linearly with the depth)
+         */
+        NESTING,
+        /**
+         * Long comma declarations, both global and local.
+         */
+        DECLARATIONS,
+        /**
+         * A method whose body is mostly calls with literal and variable arguments.
+         */
+        CALLS
+    }
+
+    // Constants.
+    private static final String[] TYPES = {"int", "double", "String", "boolean", "char"};
+    private static final String[] VALUES = {"42", "-3.5", "\"text value\"", "true", "'c'"};
+    private static final int WORKLOAD_LOCATION = 0, SIZE_LOCATION = 1, FILE_LOCATION = 2, SEED_LOCATION = 3,
+            DECLARATION_LENGTH = 16, DEFAULT_SEED = 6, MAX_INDENT = 8;
+    private static final String INDENT = "\t", LINE_END = "\n", RETURN = "return;";
+
+    // Variables.
+    private Random random;
+
+    /**
+     * Creates a new generator.
+     *
+     * @param seed the seed of the random choices of the generator.
+     */
+    public CorpusGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > SEED_LOCATION ? Long.parseLong(args[SEED_LOCATION]) : DEFAULT_SEED;
+        String text = new CorpusGenerator(seed).generate(Workload.valueOf(args[WORKLOAD_LOCATION]),
+                Integer.parseInt(args[SIZE_LOCATION]));
+        Files.write(Paths.get(args[FILE_LOCATION]), text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Generates the source code of a file of the given workload.
+     *
+     * @param workload the kind of file to generate.
+     * @param size     the number of globals, methods, nesting levels, declarations or calls.
+     * @return the source code.
+     */
+    public String generate(Workload workload, int size) {
+        StringBuilder out = new StringBuilder();
+        switch (workload) {
+            case GLOBALS:
+                globals(out, size);
+                break;
+            case METHODS:
+                methods(out, size);
+                break;
+            case NESTING:
+                nesting(out, size);
+                break;
+            case DECLARATIONS:
+                declarations(out, size);
+                break;
+            case CALLS:
+                calls(out, size);
+                break;
+        }
+        return out.toString();
+    }
+
+    // Writes global variables of random types, some final and some unassigned.
+    private void globals(StringBuilder out, int size) {
+        for (int i = 0; i < size; i++) {
+            int type = random.nextInt(TYPES.length);
+            if (random.nextInt(4) == 0)
+                out.append("// global ").append(i).append(LINE_END);
+            if (random.nextBoolean())
+                out.append("final ").append(TYPES[type]).append(" g").append(i).append(" = ")
+                        .append(VALUES[type]).append(';').append(LINE_END);
+            else
+                out.append(TYPES[type]).append(" g").append(i).append(';').append(LINE_END);
+        }
+    }
+
+    // Writes methods with a few parameters and statements, each calling the one before it.
+    private void methods(StringBuilder out, int size) {
+        for (int i = 0; i < size; i++) {
+            out.append("void m").append(i).append("(int a, final double b, String c) {").append(LINE_END);
+            line(out, 1, "int x = a;");
+            line(out, 1, "double y = b;");
+            line(out, 1, "y = x;");
+            if (i > 0)
+                line(out, 1, "m" + (i - 1) + "(x, y, c);");
+            line(out, 1, RETURN);
+            out.append('}').append(LINE_END);
+        }
+    }
+
+    // Writes a method with the given number of nested if and while blocks.
+    private void nesting(StringBuilder out, int size) {
+        out.append("void deep(boolean flag) {").append(LINE_END);
+        for (int depth = 1; depth <= size; depth++) {
+            line(out, depth, (depth % 2 == 0 ? "while" : "if") + " (flag || true && v" + (depth - 1) + ") {");
+            line(out, depth + 1, "boolean v" + depth + " = flag;");
+            line(out, depth + 1, "v" + depth + " = false;");
+        }
+        for (int depth = size; depth >= 1; depth--)
+            line(out, depth, "}");
+        line(out, 1, RETURN);
+        out.append('}').append(LINE_END);
+        out.insert(0, "boolean v0 = true;" + LINE_END);
+    }
+
+    // Writes long comma declarations, half of them global and half in a method.
+    private void declarations(StringBuilder out, int size) {
+        int global = size / 2;
+        for (int i = 0; i < global; i++)
+            out.append(declaration("g" + i + "_")).append(LINE_END);
+        out.append("void locals() {").append(LINE_END);
+        for (int i = global; i < size; i++)
+            line(out, 1, declaration("l" + i + "_"));
+        line(out, 1, RETURN);
+        out.append('}').append(LINE_END);
+    }
+
+    // Returns a declaration of many variables of the same type, some of them assigned.
+    private String declaration(String prefix) {
+        int type = random.nextInt(TYPES.length);
+        StringBuilder line = new StringBuilder(TYPES[type]).append(' ');
+        for (int i = 0; i < DECLARATION_LENGTH; i++) {
+            if (i > 0)
+                line.append(", ");
+            line.append(prefix).append(i);
+            if (random.nextBoolean())
+                line.append(" = ").append(VALUES[type]);
+        }
+        return line.append(';').toString();
+    }
+
+    // Writes a method that calls another method many times, with literals and variables.
+    private void calls(StringBuilder out, int size) {
+        out.append("void callee(int a, double b, String c, boolean d, char e) {").append(LINE_END);
+        line(out, 1, RETURN);
+        out.append('}').append(LINE_END);
+        out.append("void caller(int a, double b) {").append(LINE_END);
+        line(out, 1, "String s = \"value\";");
+        line(out, 1, "char ch = 'x';");
+        for (int i = 0; i < size; i++)
+            if (random.nextBoolean())
+                line(out, 1, "callee(" + i + ", " + i + ".5, \"s" + i + "\", true, 'q');");
+            else
+                line(out, 1, "callee(a, b, s, a, ch);");
+        line(out, 1, RETURN);
+        out.append('}').append(LINE_END);
+    }
+
+    // Writes a line with the indentation of the given depth, up to MAX_INDENT.
+    private static void line(StringBuilder out, int depth, String line) {
+        for (int i = 0; i < Math.min(depth, MAX_INDENT); i++)
+            out.append(INDENT);
+        out.append(line).append(LINE_END);
+    }
+}
@@ -0,0 +1,60 @@
+package oop.ex6.bench;
+
+import oop.ex6.main.CheckResult;
+import oop.ex6.main.Checker;
+
+/**
+ * Pins the declaration lines that the checker accepts and rejects, in the global scope and
+ * in a method: single declarations, which must end with ';' right after the name or the
+ * value, and comma declarations (type a [= v], b [= v], ...;), whose separators must also
+ * come right after the name or the value, and may be followed by whitespaces.
+ * A char literal holds a single code point, which may be a surrogate pair.
+ * Prints every form whose result isn't the expected one, and the exit code is 1 if there's any.
+ * Usage: DeclarationForms
+ */
+public class DeclarationForms {
+
+    // Constants.
+    private static final String[] ACCEPTED = {"int a;", "int a = 5;", "int a=5;", "int a =5;", "int a= 5;",
+            "final int a = 5;", "String s = \"a b\";", "double d = -3;", "char c = 'c';", "boolean b = true;",
+            "int a, b;", "int a,b;", "int a,\tb;", "int a = 1, b = 2;", "int a=1,b=2;", "int a, b = 2, c;",
+            "final int a = 1, b = 2;", "String s = \"a b\", t = \"c\";", "double d = -3, e = 1.5, f;",
+            "int a = x, b = x;", "char c = '\uD83D\uDE00';", "char c = '\u00e9', d = '\uD83D\uDE00';"};
+    private static final String[] REJECTED = {"int a ;", "int a = 5 ;", "int a=5 ;", "final double x ;",
+            "String s = \"a b\" ;", "int foo = -3 ;", "int a =;", "int a = ;", "int a", "int a = 5",
+            "int a , b;", "int a ,b;", "int a = 1 , b;", "int a, b ;", "int a, b = 2 ;", "int a,;", "int a, ;",
+            "int a, , b;", "int , a;", "int a = , b;", "int a b;", "int a = 1, b = 2", "int a; int b;",
+            "int a, b;;", "char c = '';", "char c = 'ab';", "char c = '\uD83D\uDE00\uD83D\uDE00';",
+            "char c = '\uD83D\uDE00;"};
+    private static final String HEADER = "int x = 1;\n", METHOD_START = "void m() {\n", METHOD_END = "\nreturn;\n}\n",
+            FORMAT = "%-8s %-9s %s%n", FAILED_ACCEPTED = "rejected", FAILED_REJECTED = "accepted",
+            GLOBAL = "global", LOCAL = "method";
+    private static final int FAILED_CODE = 1;
+
+    public static void main(String[] args) {
+        Checker checker = new Checker();
+        int failed = 0;
+        for (String line : ACCEPTED)
+            failed += check(checker, line, true);
+        for (String line : REJECTED)
+            failed += check(checker, line, false);
+        if (failed > 0)
+            System.exit(FAILED_CODE);
+    }
+
+    // Checks the line in both scopes, prints every unexpected result and returns their number.
+    private static int check(Checker checker, String line, boolean accepted) {
+        int failed = 0;
+        CheckResult global = checker.check(HEADER + line + "\n"),
+                local = checker.check(HEADER + METHOD_START + line + METHOD_END);
+        if (global.isLegal() != accepted) {
+            System.out.printf(FORMAT, accepted ? FAILED_ACCEPTED : FAILED_REJECTED, GLOBAL, line);
+            failed++;
+        }
+        if (local.isLegal() != accepted) {
+            System.out.printf(FORMAT, accepted ? FAILED_ACCEPTED : FAILED_REJECTED, LOCAL, line);
+            failed++;
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,298 @@
+package oop.ex6.bench;
+
+import oop.ex6.blocks.Block;
+import oop.ex6.blocks.CheckOptions;
+import oop.ex6.blocks.GlobalBlock;
+import oop.ex6.main.Checker;
+import oop.ex6.main.FilteredTrimmedReader;
+import oop.ex6.main.LineScanner;
+import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.Type;
+import oop.ex6.main.Variable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Makes sure that the time the checker takes grows linearly with the length of a line, even
+ * for pathological lines that would make a backtracking regular expression take quadratic or
+ * exponential time: long runs of whitespaces, unbalanced quotes, huge numeric literals, long
+ * chains of conditions, and random mixes of these.
+ * Every pattern is given to every entry point at a few sizes, each double the one before it,
+ * and the growth of the median time per doubling is reported. The exit code is 1 if any
+ * pattern grew more than linearly (with some slack for noise) in any entry point.
+ * Usage: ScalingSuite [size] [iterations] [seed]
+ */
+public class ScalingSuite {
+
+    /**
+     * Kinds of pathological lines.
+     */
+    public enum Pattern {
+        /**
+         * A definition with long runs of whitespaces around every part.
+         */
+        SPACES,
+        /**
+         * An assignment whose value is followed by whitespaces and no semicolon.
+         */
+        TRAILING_SPACES,
+        /**
+         * A String definition with an opening quote and no closing one.
+         */
+        UNBALANCED_QUOTE,
+        /**
+         * An assignment whose value is many unmatched quotes.
+         */
+        MANY_QUOTES,
+        /**
+         * A double definition with a huge literal that is invalid at its last character.
+         */
+        HUGE_NUMBER,
+        /**
+         * An if condition with a long chain of && and || operators.
+         */
+        CONDITION,
+        /**
+         * A while condition with a long chain of operators and missing operands.
+         */
+        BROKEN_CONDITION,
+        /**
+         * A call with many arguments.
+         */
+        ARGUMENTS,
+        /**
+         * A definition of many variables that ends without a semicolon.
+         */
+        DECLARATIONS,
+        /**
+         * A random mix of the fragments of all the other patterns.
+         */
+        FUZZ
+    }
+
+    /*
+     * A part of the checker that a line is given to. Returns a value that depends on the work,
+     * so that the work can't be optimized away.
+     */
+    private interface EntryPoint {
+        long run(String line) throws IOException;
+    }
+
+    // Constants.
+    private static final int DEFAULT_SIZE = 1 << 13, DEFAULT_ITERATIONS = 7, WARMUP_ITERATIONS = 3,
+            DOUBLINGS = 3, SIZE_LOCATION = 0, ITERATIONS_LOCATION = 1, SEED_LOCATION = 2, FAILED_CODE = 1;
+    private static final long DEFAULT_SEED = 6, MIN_BATCH_NANOS = 2000000;
+    // Linear growth doubles the time. Quadratic growth would multiply it by 4.
+    private static final double MAX_GROWTH = 2.8;
+    private static final String HEADER = "boolean a = true;\nboolean b = false;\nint i = 1;\nString s = \"\";\n"
+            + "void foo(int x) {\nreturn;\n}\n";
+    private static final String[] FRAGMENTS = {" ", "\t", "\"", "'", "9", ".", "&&", "||", ",", "=", "(",
+            ")", ";", "a", "_1", "true"};
+    private static final String BLOCK = "{";
+    private static final String FORMAT = "%-17s %-12s %10.3f ms %8.2fx per doubling%s%n", FAILED = "  FAILED";
+
+    // Variables.
+    private static volatile long sink;
+    private static Checker checker = new Checker(), recoveringChecker = new Checker(Charset.defaultCharset(), true);
+    private static LineScanner scanner = new LineScanner();
+    private static Block container;
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > SIZE_LOCATION ? Integer.parseInt(args[SIZE_LOCATION]) : DEFAULT_SIZE;
+        int iterations = args.length > ITERATIONS_LOCATION ? Integer.parseInt(args[ITERATIONS_LOCATION])
+                : DEFAULT_ITERATIONS;
+        long seed = args.length > SEED_LOCATION ? Long.parseLong(args[SEED_LOCATION]) : DEFAULT_SEED;
+        container = globalBlock();
+        String[] entryNames = {"reader", "scanner", "values", "condition", "declarations", "global", "method",
+                "recovering"};
+        EntryPoint[] entryPoints = {ScalingSuite::readAll, ScalingSuite::scan, ScalingSuite::values,
+                ScalingSuite::condition, ScalingSuite::declarations, line -> checkFile(HEADER + line, checker),
+                line -> checkFile(inMethod(line), checker), line -> checkFile(inMethod(line), recoveringChecker)};
+        boolean failed = false;
+        for (Pattern pattern : Pattern.values()) {
+            String[] lines = new String[DOUBLINGS + 1];
+            for (int i = 0; i <= DOUBLINGS; i++)
+                lines[i] = generate(pattern, size << i, new Random(seed));
+            for (int i = 0; i < entryPoints.length; i++)
+                failed |= !measure(pattern, entryNames[i], lines, iterations, entryPoints[i]);
+        }
+        if (failed)
+            System.exit(FAILED_CODE);
+    }
+
+    /**
+     * Generates a line of the given pattern.
+     *
+     * @param pattern the kind of line to generate.
+     * @param size    the number of repeated fragments in the line. (Its length is linear in it)
+     * @param random  the source of the random choices, for FUZZ lines.
+     * @return the line.
+     */
+    public static String generate(Pattern pattern, int size, Random random) {
+        switch (pattern) {
+            case SPACES:
+                String spaces = repeat(" ", size);
+                return "int" + spaces + "a" + spaces + "=" + spaces + "5" + spaces + ";";
+            case TRAILING_SPACES:
+                return "i = 5" + repeat(" ", size);
+            case UNBALANCED_QUOTE:
+                return "String t = \"" + repeat("x ", size) + ";";
+            case MANY_QUOTES:
+                return "s = " + repeat("\"a", size) + ";";
+            case HUGE_NUMBER:
+                return "double d = -" + repeat("9", size) + "." + repeat("9", size) + "x;";
+            case CONDITION:
+                return "if (" + repeat("a && b || ", size) + "true) {";
+            case BROKEN_CONDITION:
+                return "while (a" + repeat(" &&  || ", size) + ") {";
+            case ARGUMENTS:
+                return "foo(" + repeat("1,  ", size) + "1);";
+            case DECLARATIONS:
+                StringBuilder line = new StringBuilder("int v0");
+                for (int i = 1; i < size; i++)
+                    line.append(", v").append(i).append(" = ").append(i);
+                return line.toString();
+            default:
+                StringBuilder fuzz = new StringBuilder();
+                for (int i = 0; i < size; i++)
+                    fuzz.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                return fuzz.toString();
+        }
+    }
+
+    /*
+     * Measures the entry point on the lines, whose sizes double one after the other, and prints
+     * the time of the largest line and the growth per doubling. Returns false if it grew too fast.
+     */
+    private static boolean measure(Pattern pattern, String name, String[] lines, int iterations,
+                                   EntryPoint entryPoint) throws IOException {
+        int batch = batchSize(lines[0], entryPoint);
+        double[] times = new double[lines.length];
+        for (int i = 0; i < lines.length; i++)
+            times[i] = median(lines[i], entryPoint, batch, iterations);
+        double growth = Math.pow(times[lines.length - 1] / times[0], 1.0 / (lines.length - 1));
+        boolean linear = growth <= MAX_GROWTH;
+        System.out.printf(FORMAT, pattern.name().toLowerCase(), name, times[lines.length - 1] / 1e6, growth,
+                linear ? "" : FAILED);
+        return linear;
+    }
+
+    /*
+     * Returns the number of times to run the entry point in every measurement, so that a batch
+     * on the smallest line takes long enough for the timer. (The same batch is used for all
+     * the sizes)
+     */
+    private static int batchSize(String line, EntryPoint entryPoint) throws IOException {
+        int batch = 1;
+        while (true) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++)
+                sink += entryPoint.run(line);
+            if (System.nanoTime() - start >= MIN_BATCH_NANOS)
+                return batch;
+            batch *= 2;
+        }
+    }
+
+    // Runs the batch a few times to warm up, then returns the median time of a single run.
+    private static double median(String line, EntryPoint entryPoint, int batch, int iterations)
+            throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS * batch; i++)
+            sink += entryPoint.run(line);
+        double[] times = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            for (int j = 0; j < batch; j++)
+                sink += entryPoint.run(line);
+            times[i] = (double) (System.nanoTime() - start) / batch;
+        }
+        Arrays.sort(times);
+        return times[iterations / 2];
+    }
+
+    // Reads the line with FilteredTrimmedReader and returns its length.
+    private static long readAll(String line) throws IOException {
+        long length = 0;
+        try (FilteredTrimmedReader reader = new FilteredTrimmedReader(new BufferedReader(new StringReader(line)))) {
+            String read;
+            while ((read = reader.readLine()) != null)
+                length += read.length();
+        } catch (SJavaFormatException e) {
+            return -1;
+        }
+        return length;
+    }
+
+    // Matches the line against every kind of line that the checker knows, and counts the matches.
+    private static long scan(String line) {
+        long matches = 0;
+        if (scanner.matchDefinition(line))
+            while (scanner.nextVariable())
+                matches++;
+        scanner.matchParameters(line);
+        while (scanner.nextParameter())
+            matches++;
+        matches += scanner.matchMethod(line) ? 1 : 0;
+        matches += scanner.matchSubBlock(line) ? 1 : 0;
+        matches += scanner.matchCall(line) ? 1 : 0;
+        matches += scanner.matchAssignment(line) ? 1 : 0;
+        matches += LineScanner.isDefinition(line) ? 1 : 0;
+        matches += LineScanner.isReturn(line) ? 1 : 0;
+        return matches + LineScanner.splitArguments(line).length;
+    }
+
+    // Checks whether the line is a value of every type, and counts the types.
+    private static long values(String line) {
+        long types = 0;
+        for (Type type : Type.values())
+            types += type.isValue(line) ? 1 : 0;
+        return types;
+    }
+
+    // Splits the line as a condition and returns the number of parts.
+    private static long condition(String line) {
+        return LineScanner.splitCondition(line).length;
+    }
+
+    // Interprets the line as a declaration in the global scope, and returns the number of variables.
+    private static long declarations(String line) {
+        try {
+            return Variable.interpretVariables(line, container).size();
+        } catch (SJavaFormatException e) {
+            return -1;
+        }
+    }
+
+    // Checks the given source code and returns its result code.
+    private static long checkFile(String source, Checker checker) {
+        return checker.check(source).getCode();
+    }
+
+    // Returns a file in which the line is the first statement of a method. (Closing it if it opens a block)
+    private static String inMethod(String line) {
+        return HEADER + "void m() {\n" + line + (line.endsWith(BLOCK) ? "\n}" : "") + "\nreturn;\n}\n";
+    }
+
+    // Returns the global scope of a file with the variables of the header, for interpreting declarations in.
+    private static Block globalBlock() throws IOException {
+        try {
+            return new GlobalBlock(new CheckOptions().source(new FilteredTrimmedReader(
+                    new BufferedReader(new StringReader(HEADER)))));
+        } catch (SJavaFormatException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns the given string repeated the given number of times.
+    private static String repeat(String string, int times) {
+        StringBuilder out = new StringBuilder(string.length() * times);
+        for (int i = 0; i < times; i++)
+            out.append(string);
+        return out.toString();
+    }
+}
@@ -1,9 +1,9 @@
 package oop.ex6.blocks;
 
 import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.Type;
 import oop.ex6.main.Variable;
 
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -21,75 +21,44 @@ public abstract class Block {
      */
     static final char BLOCK = '{', SINGLE_LINE = ';';
 
-    // Variables.
-    private HashMap<String, Variable> variableDictionary;
-
     /**
-     * Creates a new block.
+     * Returns 1 if the given line opens a block, -1 if it closes one and 0 otherwise.
+     *
+     * @param line the line to check.
+     * @return the change in the depth of blocks after the line.
      */
-    Block() {
-        variableDictionary = new HashMap<>();
+    static int depthChange(CharSequence line) {
+        if (BLOCK_END.contentEquals(line))
+            return -1;
+        return line.charAt(line.length() - 1) == BLOCK ? 1 : 0;
     }
 
     /**
      * Adds the given list of variables to this block.
+     * Throws an SJavaException if one of them has the same name as a variable of this block.
      *
      * @param variableList the list of variables to add.
      */
-    void addVariables(List<Variable> variableList) throws SJavaFormatException {
-        String name;
-        for (Variable variable : variableList)
-            if (!variableDictionary.containsKey(name = variable.getName()))
-                variableDictionary.put(name, variable);
-            else
-                throw new SJavaFormatException(); // Variable name conflict.
-    }
+    abstract void addVariables(List<Variable> variableList) throws SJavaFormatException;
 
     /**
-     * If exists in this scope, returns the type of the variable with the given name.
-     * Otherwise, returns null.
-     * Throws an SJavaException if found but is unassigned.
+     * If exists in this scope or an outer scope, returns the type of the variable
+     * with the given name.
+     * Throws an SJavaException if not found or if found but is unassigned.
      *
      * @param name the name of the variable.
      * @return the type of the variable.
      */
-    public String getVariableType(String name) throws SJavaFormatException {
-        Variable variable = variableDictionary.get(name);
-        if (variable == null)
-            return null;
-        variable.use();
-        return variable.getType();
-    }
+    public abstract Type getVariableType(String name) throws SJavaFormatException;
 
     /**
-     * If exists in this scope, return true if assigning the given value to the variable
-     * with the given name is possible. If it doesn't exist returns false.
-     * If the value is incompatible with the variable,
-     * throws an SJavaException.
+     * If exists in this scope or an outer scope, return true if assigning the given
+     * value to the variable with the given name is possible. If it doesn't exist returns false.
+     * If the value is incompatible with the variable, throws an SJavaException.
      *
      * @param name  the name of the variable.
      * @param value the value to assign to the variable.
-     * @return true if the variable exists in this scope and assignment succeeds. Otherwise, returns false.
+     * @return true if the variable exists and assignment succeeds. Otherwise, returns false.
      */
-    boolean assignVariable(String name, String value) throws SJavaFormatException {
-        Variable toAssign = variableDictionary.get(name);
-        if (toAssign == null)
-            return false;
-        toAssign.assign(value);
-        return true;
-    }
-
-    /**
-     * If exists, reverts a global variable with the same name to
-     * its original assignment state.
-     * If it doesn't exist, throws an SJavaFormatException.
-     *
-     * @param name the name of the variable.
-     */
-    void revertVariable(String name) throws SJavaFormatException {
-        Variable toRevert = variableDictionary.get(name);
-        if (toRevert == null)
-            throw new SJavaFormatException();
-        toRevert.revert();
-    }
+    abstract boolean assignVariable(String name, String value) throws SJavaFormatException;
 }
@@ -0,0 +1,171 @@
+package oop.ex6.blocks;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The Flight Recorder events of the phases of a check, and a summary of them.
+ * The events are created only while a recording is running: one started with the JVM (for
+ * example with -XX:StartFlightRecording), one started later (for example with jcmd JFR.start)
+ * or a summary. Until then no event class is initialized, since that starts Flight Recorder,
+ * which takes longer than checking a small file. A listener follows the state of the
+ * recordings, so the events are created as soon as one starts, and no more once all stop.
+ * The summary records the same events in-process and prints their totals once the checks are done.
+ */
+public class CheckEvents {
+
+    /**
+     * Reading a file and checking its global scope and method signatures.
+     */
+    @Name("oop.ex6.Compile")
+    @Label("Compile")
+    @Category("SJava")
+    @Description("Reading a file and checking its global scope and method signatures")
+    static class CompileEvent extends Event {
+        @Label("Lines")
+        int lines;
+        @Label("Filtered Lines")
+        @Description("Comments and whitespace-only lines")
+        int filteredLines;
+        @Label("Global Variables")
+        int globals;
+        @Label("Methods")
+        int methods;
+    }
+
+    /**
+     * Checking the body of a single method.
+     */
+    @Name("oop.ex6.MethodCheck")
+    @Label("Method Check")
+    @Category("SJava")
+    @Description("Checking the body of a method")
+    static class MethodEvent extends Event {
+        @Label("Method")
+        String method;
+        @Label("Lines")
+        int lines;
+        @Label("SubBlocks")
+        @Description("If and while blocks entered")
+        int subBlocks;
+    }
+
+    // Constants.
+    private static final String COMPILE = "oop.ex6.Compile", METHOD = "oop.ex6.MethodCheck";
+    private static final String COMPILE_FORMAT = "compile: %d file(s) in %.1f ms, %d lines (%d filtered),"
+            + " %d global variables, %d methods%n";
+    private static final String METHOD_FORMAT = "methods: %d checked in %.1f ms (%.0f ns/line),"
+            + " %d lines, %d SubBlocks entered%n";
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    // Variables.
+    private static volatile boolean enabled;
+    private static Recording summary;
+
+    static {
+        // Called right away if Flight Recorder is already initialized. (Adding it doesn't initialize it)
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                update(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                update(FlightRecorder.getFlightRecorder());
+            }
+        });
+    }
+
+    // Enables the events if any recording of the given recorder is running.
+    private static void update(FlightRecorder recorder) {
+        boolean running = false;
+        for (Recording recording : recorder.getRecordings())
+            running |= recording.getState() == RecordingState.RUNNING;
+        enabled = running;
+    }
+
+    /**
+     * Returns true if the events should be created, which is when a recording is running.
+     *
+     * @return true if the events are enabled.
+     */
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts recording the events for a summary.
+     */
+    public static synchronized void startSummary() {
+        summary = new Recording();
+        summary.enable(CompileEvent.class).withThreshold(Duration.ZERO);
+        summary.enable(MethodEvent.class).withThreshold(Duration.ZERO);
+        summary.start(); // Enables the events. (See update)
+    }
+
+    /**
+     * Stops recording and prints the totals of the recorded events.
+     * (Durations are summed over all threads, so they can add up to more than the wall time)
+     *
+     * @param out the stream to print the summary to.
+     * @throws IOException if the recording can't be read.
+     */
+    public static synchronized void printSummary(PrintStream out) throws IOException {
+        if (summary == null)
+            return;
+        summary.stop();
+        Path file = Files.createTempFile("sjava", ".jfr");
+        try {
+            summary.dump(file);
+            summarize(file, out);
+        } finally {
+            summary.close();
+            summary = null;
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Prints the totals of the events in the given recording.
+    private static void summarize(Path file, PrintStream out) throws IOException {
+        long compiles = 0, compileNanos = 0, lines = 0, filtered = 0, globals = 0, methods = 0;
+        long checks = 0, checkNanos = 0, methodLines = 0, subBlocks = 0;
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String name = event.getEventType().getName();
+                if (name.equals(COMPILE)) {
+                    compiles++;
+                    compileNanos += event.getDuration().toNanos();
+                    lines += event.getInt("lines");
+                    filtered += event.getInt("filteredLines");
+                    globals += event.getInt("globals");
+                    methods += event.getInt("methods");
+                } else if (name.equals(METHOD)) {
+                    checks++;
+                    checkNanos += event.getDuration().toNanos();
+                    methodLines += event.getInt("lines");
+                    subBlocks += event.getInt("subBlocks");
+                }
+            }
+        }
+        out.printf(COMPILE_FORMAT, compiles, compileNanos / NANOS_PER_MILLI, lines, filtered, globals, methods);
+        out.printf(METHOD_FORMAT, checks, checkNanos / NANOS_PER_MILLI,
+                methodLines == 0 ? 0.0 : (double) checkNanos / methodLines, methodLines, subBlocks);
+    }
+}
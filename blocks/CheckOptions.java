@@ -0,0 +1,311 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.ChannelLineReader;
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.LineSource;
+import oop.ex6.main.MappedLineReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+
+/**
+ * What a GlobalBlock checks and how. (See GlobalBlock(CheckOptions))
+ * The file is given either as a path or as a source of lines, and every other option is
+ * off unless it's set. Only the combinations that a GlobalBlock can check are accepted:
+ * - streaming and signature tables read the file from its path, a line at a time, and can be
+ * combined with each other and with parallel methods.
+ * - a pipeline already checks the methods concurrently, so it can't be combined with any of
+ * the options above, and can't be used from a ForkJoinPool (which already checks files
+ * concurrently).
+ * - a workspace only checks the methods one after the other, and keeps its own errors.
+ * - reading only the global scope (for projects and incremental checks) can't be combined
+ * with any of the options that check the methods.
+ * - hashing the file while it's read needs its first pass, so only when streaming without
+ * signature tables.
+ * Any other combination is rejected by the GlobalBlock, instead of quietly checking the file
+ * some other way.
+ */
+public class CheckOptions {
+
+    // Constants.
+    private static final String NO_INPUT = "Exactly one of a file and a source must be given.",
+            NEEDS_FILE = "Streaming and signature tables read the file from its path.",
+            PIPELINE_CONFLICT = "A pipeline can't be combined with parallel methods, streaming, signature tables,"
+                    + " a workspace or reading only the global scope.",
+            WORKSPACE_CONFLICT = "A workspace can't be combined with parallel methods, streaming, signature"
+                    + " tables, another errors buffer or reading only the global scope.",
+            GLOBAL_SCOPE_CONFLICT = "Reading only the global scope can't be combined with parallel methods,"
+                    + " streaming or signature tables.",
+            UNSUPPORTED_CHARSET = "The default charset can't be read a line at a time.",
+            PIPELINE_IN_POOL = "A pipeline can't be used from a ForkJoinPool.",
+            HASHED_CONFLICT = "Hashing the file needs streaming without signature tables.";
+
+    // Variables.
+    private Path file, signatures;
+    private LineSource source;
+    private boolean parallelMethods, streaming, pipelined, globalScopeOnly, recoverInWorkspace;
+    private ForkJoinPool pool;
+    private Diagnostics diagnostics;
+    private Workspace workspace;
+    private Predicate<String> known;
+
+    /**
+     * Reads the file at the given path. (Either this or source must be given)
+     *
+     * @param file the path of the file.
+     * @return these options.
+     */
+    public CheckOptions file(Path file) {
+        this.file = file;
+        return this;
+    }
+
+    /**
+     * Reads the lines of the given source, which is closed once it has been read.
+     * (Either this or file must be given)
+     *
+     * @param source the source to read the lines from.
+     * @return these options.
+     */
+    public CheckOptions source(LineSource source) {
+        this.source = source;
+        return this;
+    }
+
+    /**
+     * Sets whether to check the contents of the methods concurrently.
+     *
+     * @param parallelMethods whether to check the methods concurrently.
+     * @return these options.
+     */
+    public CheckOptions parallelMethods(boolean parallelMethods) {
+        this.parallelMethods = parallelMethods;
+        return this;
+    }
+
+    /**
+     * Sets whether to read the file in two passes, keeping only the global scope and the
+     * method signatures in memory, and reading the body of every method again just to check it.
+     *
+     * @param streaming whether to stream the file.
+     * @return these options.
+     */
+    public CheckOptions streaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * Keeps the global scope of the file in a SignatureTable in the given directory, and reads
+     * only the bodies of the methods when the table is already kept. (The file is streamed)
+     *
+     * @param signatures the directory of the tables, or null to keep no tables.
+     * @return these options.
+     */
+    public CheckOptions signatures(Path signatures) {
+        this.signatures = signatures;
+        return this;
+    }
+
+    /**
+     * Checks the file as a pipeline: its lines are read ahead on another thread, and every
+     * method is checked in the given pool as soon as it has been read. (See MethodPipeline)
+     *
+     * @param pool the pool to check the methods in, which may be shared by any number of
+     *             files, or null to check them in the common pool.
+     * @return these options.
+     */
+    public CheckOptions pipelined(ForkJoinPool pool) {
+        pipelined = true;
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Recovers from format errors, adding all of them to the given buffer instead of stopping
+     * at the first one. After an error in a line, checking continues from the next line, and
+     * the errors are sorted by their position once the whole file has been checked.
+     *
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     * @return these options.
+     */
+    public CheckOptions recover(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        return this;
+    }
+
+    /**
+     * Fills the buffers of the given workspace instead of new ones. When recovering from format
+     * errors, the errors are added to the workspace's own buffer. The block shares the
+     * workspace's buffers, so it must no longer be used once the workspace is used again.
+     *
+     * @param workspace the buffers to check with.
+     * @param recover   whether to recover from format errors instead of stopping at the first one.
+     * @return these options.
+     */
+    public CheckOptions workspace(Workspace workspace, boolean recover) {
+        this.workspace = workspace;
+        recoverInWorkspace = recover;
+        return this;
+    }
+
+    /**
+     * Hashes the content of the file while the first pass of streaming reads it, so the hash is
+     * of the same bytes that are checked, and gives its key (see ResultCache.key) to the given
+     * predicate: before the methods are checked, or once the rest of the file has been hashed
+     * if the first pass stopped at an error. If the predicate returns true before the methods
+     * are checked, the result of the content is already known, and they aren't checked.
+     * (Only when streaming without signature tables)
+     *
+     * @param known called with the key of the file, returning true if its result is known.
+     * @return these options.
+     */
+    public CheckOptions hashed(Predicate<String> known) {
+        this.known = known;
+        return this;
+    }
+
+    /**
+     * Reads only the global scope and the method signatures, and leaves the contents of the
+     * methods to be checked later. (See GlobalBlock.readChangedMethods)
+     *
+     * @return these options.
+     */
+    CheckOptions globalScopeOnly() {
+        globalScopeOnly = true;
+        return this;
+    }
+
+    /**
+     * Throws an exception if these options can't be checked together.
+     *
+     * @throws IllegalArgumentException if the options are an unsupported combination.
+     * @throws IllegalStateException    if the file must be read a line at a time and the default
+     *                                  charset doesn't allow it, or a pipeline is used from a
+     *                                  ForkJoinPool.
+     */
+    void validate() {
+        boolean twoPasses = streaming || signatures != null;
+        if ((file == null) == (source == null))
+            throw new IllegalArgumentException(NO_INPUT);
+        if (twoPasses && file == null)
+            throw new IllegalArgumentException(NEEDS_FILE);
+        if (pipelined && (parallelMethods || twoPasses || workspace != null || globalScopeOnly))
+            throw new IllegalArgumentException(PIPELINE_CONFLICT);
+        if (workspace != null && (parallelMethods || twoPasses || diagnostics != null || globalScopeOnly))
+            throw new IllegalArgumentException(WORKSPACE_CONFLICT);
+        if (globalScopeOnly && (parallelMethods || twoPasses))
+            throw new IllegalArgumentException(GLOBAL_SCOPE_CONFLICT);
+        if (known != null && (!streaming || signatures != null))
+            throw new IllegalArgumentException(HASHED_CONFLICT);
+        if (twoPasses && !ChannelLineReader.isSupported())
+            throw new IllegalStateException(UNSUPPORTED_CHARSET);
+        if (pipelined && ForkJoinTask.inForkJoinPool()) // Joining the methods would run other files' checks.
+            throw new IllegalStateException(PIPELINE_IN_POOL);
+    }
+
+    /**
+     * Returns the source of the lines, opening the file if no source was given.
+     *
+     * @return the source of the lines.
+     */
+    LineSource openSource() throws IOException {
+        return source != null ? source : MappedLineReader.open(file);
+    }
+
+    /**
+     * Returns the path of the file.
+     *
+     * @return the path of the file, or null if a source was given.
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the directory of the signature tables.
+     *
+     * @return the directory, or null if no tables are kept.
+     */
+    Path getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * Returns true if the file is read in two passes. (When streaming or keeping signature tables)
+     *
+     * @return true if the file is streamed.
+     */
+    boolean isStreaming() {
+        return streaming || signatures != null;
+    }
+
+    /**
+     * Returns the predicate that is given the key of the file.
+     *
+     * @return the predicate, or null if the file isn't hashed.
+     */
+    Predicate<String> getKnown() {
+        return known;
+    }
+
+    /**
+     * Returns true if the contents of the methods are checked concurrently.
+     *
+     * @return true if the methods are checked concurrently.
+     */
+    boolean isParallelMethods() {
+        return parallelMethods;
+    }
+
+    /**
+     * Returns true if the file is checked as a pipeline.
+     *
+     * @return true if the file is checked as a pipeline.
+     */
+    boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Returns the pool that a pipeline checks the methods in.
+     *
+     * @return the pool, or null for the common pool.
+     */
+    ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns true if only the global scope is read.
+     *
+     * @return true if the methods are left to be checked later.
+     */
+    boolean isGlobalScopeOnly() {
+        return globalScopeOnly;
+    }
+
+    /**
+     * Returns the workspace to check with.
+     *
+     * @return the workspace, or null to use new buffers.
+     */
+    Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Returns the buffer to add the errors to. (The emptied buffer of the workspace, when
+     * recovering in a workspace)
+     *
+     * @return the buffer, or null to stop at the first error.
+     */
+    Diagnostics getDiagnostics() {
+        if (workspace != null)
+            return recoverInWorkspace ? workspace.diagnostics() : null;
+        return diagnostics;
+    }
+}
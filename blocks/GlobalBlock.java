@@ -1,23 +1,55 @@
 package oop.ex6.blocks;
 
-import oop.ex6.main.FilteredTrimmedReader;
+import oop.ex6.blocks.CheckEvents.CompileEvent;
+import oop.ex6.main.ChannelLineReader;
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.LineSource;
+import oop.ex6.main.PrefetchingLineSource;
+import oop.ex6.main.ResultCache;
 import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.SJavaFormatException.Kind;
+import oop.ex6.main.Type;
 import oop.ex6.main.Variable;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
 
 /**
  * Represents the outermost block in an SJava file.
  */
 public class GlobalBlock extends Block {
 
+    // Constants.
+    private static final int TASKS_PER_THREAD = 4;
+    private static final char NEW_LINE = '\n';
+
     // Variables.
-    private HashMap<String, Method> methodDictionary;
+    private Map<String, Method> methodDictionary;
+    private Map<String, Variable> variableDictionary;
+    private LineBuffer lines;
+    private FileChannel channel;
+    private HashMap<Method, Long> methodOffsets;
+    private HashMap<String, Long> variablePositions;
+    private Diagnostics diagnostics;
+    private Workspace workspace;
+    private ProjectIndex project;
+    private MessageDigest scopeDigest;
+    private MethodPipeline pipeline;
+    private int methodsChecked;
 
     /**
      * Creates a new GlobalBlock.
@@ -25,45 +57,245 @@ public class GlobalBlock extends Block {
      * @param file the file path (including name) of the file to read.
      */
     public GlobalBlock(String file) throws IOException, SJavaFormatException {
-        methodDictionary = new HashMap<>();
-        compile(file);
+        this(new CheckOptions().file(Paths.get(file)));
+    }
+
+    /**
+     * Creates a new GlobalBlock that reads and checks a file as the given options tell.
+     * (See CheckOptions)
+     * When recovering from format errors, checking continues from the line after an error (or
+     * after the block, if the error is in the block's definition), and every error is added to
+     * the buffer instead of being thrown. The errors are sorted by their position once the
+     * whole file has been checked.
+     * When streaming, only the global scope and the method signatures are kept in memory,
+     * and the body of every method is read again from the file just to be checked. With a
+     * directory of signature tables, the global scope is kept in a SignatureTable, and is taken
+     * from it instead of being read again when the file's global scope didn't change.
+     * As a pipeline, three stages run at the same time: a thread reads the lines ahead (see
+     * PrefetchingLineSource), this thread reads the global scope and cuts out the lines of every
+     * method, and the workers of a pool check the contents of each method as soon as it has
+     * been read. (See MethodPipeline) Methods that use global variables or methods that are
+     * defined after them are checked again once the whole file has been read, so the result is
+     * the same as checking the file on this thread.
+     *
+     * @param options the file and how to check it.
+     * @throws IllegalArgumentException if the options are an unsupported combination.
+     * @throws IllegalStateException    if the options can't be checked here. (See CheckOptions.validate)
+     */
+    public GlobalBlock(CheckOptions options) throws IOException, SJavaFormatException {
+        options.validate();
+        workspace = options.getWorkspace();
+        diagnostics = options.getDiagnostics();
+        lines = workspace == null ? new LineBuffer() : workspace.lines();
+        if (options.isPipelined()) {
+            pipeline(options);
+            return;
+        }
+        methodDictionary = new LinkedHashMap<>();
+        variableDictionary = new HashMap<>();
+        if (options.isStreaming())
+            stream(options);
+        else if (options.isGlobalScopeOnly()) {
+            variablePositions = new HashMap<>(); // For checkProjectNames.
+            compile(options.openSource());
+        } else {
+            compile(options.openSource());
+            readMethods(options.isParallelMethods());
+        }
+    }
+
+    // Checks the file as a pipeline. (See GlobalBlock(CheckOptions))
+    private void pipeline(CheckOptions options) throws IOException, SJavaFormatException {
+        methodDictionary = new ConcurrentHashMap<>(); // Read by the workers while methods are added.
+        variableDictionary = new ConcurrentHashMap<>();
+        pipeline = new MethodPipeline(options.getPool(), diagnostics != null);
+        try {
+            compile(new PrefetchingLineSource(options.openSource()));
+            List<Method> methods = pipeline.finish(this);
+            methodDictionary = new LinkedHashMap<>();
+            for (Method method : methods)
+                methodDictionary.put(method.getName(), method);
+            for (Method method : methods)
+                report(method, method.getResult());
+            if (diagnostics != null)
+                diagnostics.sort();
+        } finally {
+            pipeline.cancel();
+            pipeline = null;
+        }
+    }
+
+    /**
+     * Checks the contents of the methods, in the order they were defined, except for the ones
+     * whose result is known from the given GlobalBlock of an earlier version of the same file:
+     * methods whose lines didn't change, and whose global variables and called methods are
+     * declared the same way. Every method keeps its result (as found or as reused), so this
+     * block can be given as the earlier version of the next one.
+     * Unless recovering from errors, stops at the first method that has an error, and the
+     * methods after it are left without a result.
+     *
+     * @param previous the GlobalBlock of the earlier version, or null to check every method.
+     */
+    void readChangedMethods(GlobalBlock previous) throws SJavaFormatException {
+        SymbolTable symbols = new SymbolTable();
+        for (Method method : methodDictionary.values()) {
+            Method earlier = previous == null ? null : previous.methodDictionary.get(method.getName());
+            MethodResult result = earlier == null ? null : earlier.getResult();
+            if (result != null && method.sameLines(earlier) && result.isValid(previous, this))
+                method.setResult(result);
+            else {
+                result = method.readResult(symbols, diagnostics != null);
+                methodsChecked++;
+            }
+            report(method, result);
+        }
+        if (diagnostics != null)
+            diagnostics.sort();
+    }
+
+    // Adds the errors of the given result of a method, or throws its first error unless recovering.
+    private void report(Method method, MethodResult result) throws SJavaFormatException {
+        if (diagnostics != null)
+            result.addErrors(diagnostics, method.getLineNumber());
+        else {
+            SJavaFormatException error = result.getFirstError(method.getLineNumber());
+            if (error != null)
+                throw error;
+        }
+    }
+
+    /**
+     * Checks the contents of the methods of a block that has only read its global scope so far,
+     * adding their errors to the given buffer. (See CheckOptions.globalScopeOnly)
+     *
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     */
+    void checkMethods(Diagnostics diagnostics) throws SJavaFormatException {
+        this.diagnostics = diagnostics;
+        readChangedMethods(null);
+    }
+
+    /**
+     * Checks that no other file of the project defines a global variable or a method that this
+     * file defines, and adds an error at every definition that another file also has, sorted
+     * by their position. (See setProject and CheckOptions.globalScopeOnly)
+     *
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     */
+    void checkProjectNames(Diagnostics diagnostics) throws SJavaFormatException {
+        Diagnostics duplicates = new Diagnostics();
+        for (Variable variable : variableDictionary.values())
+            if (project.isDuplicateVariable(variable.getName())) {
+                long position = variablePositions.get(variable.getName());
+                duplicates.add(Kind.NAME_CONFLICT, (int) (position >>> Integer.SIZE), (int) position);
+            }
         for (Method method : methodDictionary.values())
-            method.readMethod();
+            if (project.isDuplicateMethod(method.getName()))
+                duplicates.add(Kind.DUPLICATE_METHOD, method.getLineNumber(), method.getColumn());
+        duplicates.sort();
+        if (diagnostics != null)
+            diagnostics.addAll(duplicates);
+        else if (!duplicates.isEmpty())
+            throw new SJavaFormatException(duplicates.getKind(0)).atLine(duplicates.getLine(0),
+                    duplicates.getColumn(0));
+    }
+
+    /**
+     * Sets the index of the other files of the project that this file belongs to. The methods
+     * of this file then find the global variables and methods that this file doesn't define
+     * in the index.
+     *
+     * @param project the index of the project.
+     */
+    void setProject(ProjectIndex project) {
+        this.project = project;
+    }
+
+    /**
+     * Returns the global variables of this file.
+     *
+     * @return the global variables.
+     */
+    Collection<Variable> getVariables() {
+        return variableDictionary.values();
+    }
+
+    /**
+     * Returns the methods of this file, in the order they were defined.
+     *
+     * @return the methods.
+     */
+    Collection<Method> getMethods() {
+        return methodDictionary.values();
+    }
+
+    /**
+     * Returns the number of methods whose contents readChangedMethods has checked.
+     *
+     * @return the number of methods checked.
+     */
+    int getMethodsChecked() {
+        return methodsChecked;
     }
 
     /*
-     * Creates and returns a list of the lines in a block, from block
-     * definition to end of the block (excluding closing line).
+     * Adds the lines of a block to the given buffer, from block definition to end
+     * of the block (excluding closing line), and returns the index after its last line.
      */
-    private static List<String> createBlockLinesList(String line, FilteredTrimmedReader reader)
+    private static int addBlockLines(LineBuffer buffer, CharSequence line, LineSource reader,
+                                     Diagnostics diagnostics) throws SJavaFormatException, IOException {
+        int blockCounter = 0;
+        do {
+            buffer.add(line, reader.lineNumber(), reader.column());
+            if ((line = readLine(reader, diagnostics)) == null)
+                throw new SJavaFormatException(Kind.UNCLOSED_BLOCK);
+            blockCounter += depthChange(line);
+        } while (blockCounter > -1);
+        return buffer.size();
+    }
+
+    // Reads the lines of a block after its definition without keeping them.
+    private static void skipBlockLines(LineSource reader, Diagnostics diagnostics)
             throws SJavaFormatException, IOException {
-        LinkedList<String> lineList = new LinkedList<>();
         int blockCounter = 0;
         do {
-            lineList.add(line);
-            if ((line = reader.readLine()) == null)
-                throw new SJavaFormatException();
-            if (line.equals(BLOCK_END))
-                blockCounter--;
-            else if (line.charAt(line.length() - 1) == BLOCK)
-                blockCounter++;
+            CharSequence line = readLine(reader, diagnostics);
+            if (line == null)
+                throw new SJavaFormatException(Kind.UNCLOSED_BLOCK);
+            blockCounter += depthChange(line);
         } while (blockCounter > -1);
-        return lineList;
+    }
+
+    /*
+     * Reads the next line from the given reader. When recovering from errors, lines that
+     * the reader rejects are added to the given buffer and skipped.
+     */
+    private static CharSequence readLine(LineSource reader, Diagnostics diagnostics)
+            throws SJavaFormatException, IOException {
+        while (true)
+            try {
+                return reader.readLine();
+            } catch (SJavaFormatException e) {
+                if (diagnostics == null)
+                    throw e;
+                diagnostics.add(e);
+            }
     }
 
     /**
-     * Calls this method.
-     * Throws an SJavaException if the list of types is incompatible
-     * with this method's parameters.
+     * Adds the given list of global variables.
+     * Throws an SJavaException if one of them has the same name as another global variable.
      *
-     * @param name  the name of the variable.
-     * @param types the list of variable types we're calling with. (Order is important)
+     * @param variableList the list of variables to add.
      */
-    void callMethod(String name, List<String> types) throws SJavaFormatException {
-        Method toCall = methodDictionary.get(name);
-        if (toCall == null)
-            throw new SJavaFormatException();
-        toCall.call(types);
+    @Override
+    void addVariables(List<Variable> variableList) throws SJavaFormatException {
+        String name;
+        for (Variable variable : variableList)
+            if (!variableDictionary.containsKey(name = variable.getName()))
+                variableDictionary.put(name, variable);
+            else
+                throw new SJavaFormatException(Kind.NAME_CONFLICT); // Variable name conflict.
     }
 
     /**
@@ -74,37 +306,351 @@ public class GlobalBlock extends Block {
      * @return the type of the variable.
      */
     @Override
-    public String getVariableType(String name) throws SJavaFormatException {
-        String type = super.getVariableType(name);
-        if (type == null)
-            throw new SJavaFormatException();
-        return type;
+    public Type getVariableType(String name) throws SJavaFormatException {
+        Variable variable = variableDictionary.get(name);
+        if (variable == null)
+            throw new SJavaFormatException(Kind.UNKNOWN_VARIABLE);
+        variable.use();
+        return variable.getType();
     }
 
-    // Reads the file and checks for errors.
-    private void compile(String file) throws IOException, SJavaFormatException {
-        try (FilteredTrimmedReader reader = new FilteredTrimmedReader(
-                new BufferedReader(new FileReader(file)))) {
+    /**
+     * If exists, return true if assigning the given value to the global variable with
+     * the given name is possible. If it doesn't exist returns false.
+     * If the value is incompatible with the variable, throws an SJavaException.
+     *
+     * @param name  the name of the variable.
+     * @param value the value to assign to the variable.
+     * @return true if the variable exists and assignment succeeds. Otherwise, returns false.
+     */
+    @Override
+    boolean assignVariable(String name, String value) throws SJavaFormatException {
+        Variable toAssign = variableDictionary.get(name);
+        if (toAssign == null)
+            return false;
+        toAssign.assign(value, this);
+        return true;
+    }
+
+    /**
+     * Returns the global variable with the given name, or null if it doesn't exist.
+     * (Looked for in the project too, if this file doesn't define it)
+     *
+     * @param name the name of the variable.
+     * @return the variable with the given name.
+     */
+    Variable getVariable(String name) {
+        Variable variable = variableDictionary.get(name);
+        return variable == null && project != null ? project.getVariable(name) : variable;
+    }
+
+    /**
+     * Returns the method with the given name, or null if it doesn't exist.
+     * (Looked for in the project too, if this file doesn't define it)
+     *
+     * @param name the name of the method.
+     * @return the method with the given name.
+     */
+    Method getMethod(String name) {
+        Method method = methodDictionary.get(name);
+        return method == null && project != null ? project.getMethod(name) : method;
+    }
+
+    /*
+     * Reads the source code and checks for errors. Errors that don't know their line yet
+     * are found in the global scope, so they belong to the last line that was read.
+     * When recovering from errors, reading continues from the next line.
+     */
+    private void compile(LineSource source) throws IOException, SJavaFormatException {
+        CompileEvent event = CheckEvents.isEnabled() ? new CompileEvent() : null;
+        if (event != null)
+            event.begin();
+        try (LineSource reader = source) {
+            try {
+                CharSequence line;
+                while ((line = readLine(reader, diagnostics)) != null)
+                    try {
+                        if (scopeDigest != null)
+                            digestLine(scopeDigest, line);
+                        char end = line.charAt(line.length() - 1);
+                        if (end == SINGLE_LINE)
+                            addVariables(Variable.interpretVariables(line, this), reader);
+                        else if (end == BLOCK)
+                            createMethod(line, reader);
+                        else
+                            throw new SJavaFormatException(Kind.INVALID_LINE);
+                    } catch (SJavaFormatException e) {
+                        e.atLine(reader.lineNumber(), reader.column());
+                        if (diagnostics == null)
+                            throw e;
+                        diagnostics.add(e);
+                    }
+            } finally {
+                commit(event, reader);
+            }
+        }
+        if (workspace == null) // A workspace's buffer is kept for the next file.
+            lines.trim();
+    }
+
+    /*
+     * Adds the given global variables, which the reader has just read, keeping the position
+     * of the first declaration of each of them if the positions are kept.
+     */
+    private void addVariables(List<Variable> variableList, LineSource reader) throws SJavaFormatException {
+        if (variablePositions != null)
+            for (Variable variable : variableList)
+                variablePositions.putIfAbsent(variable.getName(),
+                        (long) reader.lineNumber() << Integer.SIZE | reader.column());
+        addVariables(variableList);
+    }
+
+    // Commits the event of reading the file, if it's being recorded.
+    private void commit(CompileEvent event, LineSource reader) {
+        if (event == null)
+            return;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.lines = reader.lineNumber();
+        event.filteredLines = reader.lineNumber() - reader.linesReturned();
+        event.globals = variableDictionary.size();
+        event.methods = methodDictionary.size();
+        event.commit();
+    }
+
+    /*
+     * Reads the file in two passes. The first reads the global scope and the method signatures,
+     * and only records the offset that each method starts at. The second reads the body of
+     * each method again from its offset and checks it, so only the methods that are being
+     * checked are held in memory. If a directory of signature tables is given, the first pass
+     * is skipped when the directory has the table of the file. If the file is hashed, the
+     * second pass is skipped when its result is known.
+     */
+    private void stream(CheckOptions options) throws IOException, SJavaFormatException {
+        methodOffsets = new HashMap<>();
+        try (FileChannel opened = ChannelLineReader.openChannel(options.getFile())) {
+            channel = opened;
+            if (options.getSignatures() != null)
+                compile(options.getFile(), options.getSignatures());
+            else if (options.getKnown() != null) {
+                if (compileHashed(options.getKnown()))
+                    return;
+            } else
+                compile(new ChannelLineReader(channel, 0));
+            readMethods(options.isParallelMethods());
+        } finally {
+            channel = null;
+            methodOffsets = null;
+        }
+    }
+
+    /*
+     * Reads the global scope from the file while hashing it, and returns true if the given
+     * predicate knows the key of the file. (See CheckOptions.hashed)
+     */
+    private boolean compileHashed(Predicate<String> known) throws IOException, SJavaFormatException {
+        MessageDigest digest = ResultCache.newDigest();
+        ChannelLineReader reader = new ChannelLineReader(channel, 0);
+        reader.digest(digest);
+        try {
+            compile(reader);
+        } catch (SJavaFormatException e) {
+            reader.digestRest();
+            known.test(ResultCache.key(digest));
+            throw e;
+        }
+        return known.test(ResultCache.key(digest));
+    }
+
+    /*
+     * Takes the global scope from the table of the file, if the given directory has one and the
+     * lines of the file's global scope didn't change. Otherwise reads the global scope from the
+     * file, and writes its table if it has no errors. (A table that can't be read is written again)
+     */
+    private void compile(Path file, Path signatures) throws IOException, SJavaFormatException {
+        Path tableFile = signatures.resolve(SignatureTable.fileName(file));
+        SignatureTable table;
+        try {
+            table = SignatureTable.read(tableFile);
+        } catch (IOException e) {
+            table = null;
+        }
+        if (table != null && matches(table)) {
+            restore(table);
+            return;
+        }
+        int errors = diagnostics == null ? 0 : diagnostics.size();
+        scopeDigest = ResultCache.newDigest();
+        try {
+            compile(new ChannelLineReader(channel, 0));
+            if (diagnostics == null || diagnostics.size() == errors)
+                new SignatureTable(ResultCache.key(scopeDigest), variableDictionary.values(),
+                        methodDictionary.values(), methodOffsets).write(tableFile);
+        } finally {
+            scopeDigest = null;
+        }
+    }
+
+    /*
+     * Reads the lines of the global scope from the file without interpreting them, skipping the
+     * bodies of the methods, and returns true if they are the lines that the given table was
+     * made of. The methods of the table are moved to where their definitions now start, since
+     * the bodies before them may have changed. (A line that can't be read fails the match, and
+     * is reported by reading the file as usual)
+     */
+    private boolean matches(SignatureTable table) throws IOException {
+        MessageDigest digest = ResultCache.newDigest();
+        ChannelLineReader reader = new ChannelLineReader(channel, 0);
+        int methods = 0;
+        try {
             String line;
             while ((line = reader.readLine()) != null) {
-                char end = line.charAt(line.length() - 1);
-                if (end == SINGLE_LINE)
-                    addVariables(Variable.interpretVariables(line, this));
-                else if (end == BLOCK)
-                    createMethod(line, reader);
-                else
-                    throw new SJavaFormatException();
+                digestLine(digest, line);
+                if (line.charAt(line.length() - 1) != BLOCK)
+                    continue;
+                if (methods == table.methodCount())
+                    return false;
+                table.moveMethod(methods++, reader.lineNumber(), reader.column(), reader.lineOffset());
+                skipBlockLines(reader, null);
             }
+        } catch (SJavaFormatException e) {
+            return false;
+        }
+        return methods == table.methodCount() && ResultCache.key(digest).equals(table.getScopeKey());
+    }
+
+    // Gives a line of the global scope to the digest of the scope, followed by a line break.
+    private static void digestLine(MessageDigest digest, CharSequence line) {
+        digest.update(line.toString().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) NEW_LINE);
+    }
+
+    /*
+     * Creates the global variables and the methods of the given table, with only the definition
+     * line of every method and the offset to read the rest of it from.
+     */
+    private void restore(SignatureTable table) throws SJavaFormatException {
+        for (int i = 0; i < table.variableCount(); i++) {
+            String name = table.getVariableName(i);
+            variableDictionary.put(name, new Variable(name, table.getVariableType(i), table.isFinal(i),
+                    table.isAssigned(i)));
+        }
+        for (int i = 0; i < table.methodCount(); i++) {
+            int start = lines.size();
+            lines.add(table.getDefinition(i), table.getLineNumber(i), table.getColumn(i));
+            Method method = new Method(this, lines, start, start + 1);
+            methodDictionary.put(method.getName(), method);
+            methodOffsets.put(method, table.getOffset(i));
         }
     }
 
-    // Creates and adds to the method dictionary a new method.
-    private void createMethod(String line, FilteredTrimmedReader reader)
+    /*
+     * Checks the contents of all the methods, in the order they were defined.
+     * When recovering from errors, the errors of the whole file are then sorted.
+     */
+    private void readMethods(boolean parallelMethods) throws IOException, SJavaFormatException {
+        List<Method> methods = new ArrayList<>(methodDictionary.values());
+        if (parallelMethods)
+            readMethodsInParallel(methods);
+        else
+            readMethods(methods, workspace == null ? new SymbolTable() : workspace.symbols(), diagnostics);
+        if (diagnostics != null)
+            diagnostics.sort();
+    }
+
+    /*
+     * Checks the contents of the given methods one after the other, all with the given
+     * symbol table, and adds their errors to the given buffer (if recovering from errors).
+     * When streaming, their lines are read again from the file, all through the same reader
+     * and into the same buffer. (Lines that the reader rejects were already reported by the
+     * first pass, so they are skipped silently)
+     */
+    private void readMethods(List<Method> methods, SymbolTable symbols, Diagnostics diagnostics)
+            throws IOException, SJavaFormatException {
+        if (channel == null) {
+            for (Method method : methods)
+                method.readMethod(symbols, diagnostics);
+            return;
+        }
+        ChannelLineReader reader = new ChannelLineReader(channel, 0);
+        LineBuffer body = new LineBuffer();
+        Diagnostics skipped = diagnostics == null ? null : new Diagnostics();
+        for (Method method : methods) {
+            reader.seek(methodOffsets.get(method), method.getLineNumber());
+            body.clear();
+            int end = addBlockLines(body, readLine(reader, skipped), reader, skipped);
+            method.readMethod(body, 0, end, symbols, diagnostics);
+            if (skipped != null)
+                skipped.clear();
+        }
+    }
+
+    /*
+     * Checks the contents of all the methods concurrently, a few slices of methods per thread.
+     * (Methods only read the global scope, each through its own GlobalView, so they don't
+     * affect each other) When called from a ForkJoinPool the methods are checked in that pool,
+     * otherwise in the common pool. Each slice collects its errors in its own buffer, and the
+     * buffers are added in the order of the slices.
+     */
+    private void readMethodsInParallel(List<Method> methods) throws IOException, SJavaFormatException {
+        int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+        int slices = Math.min(methods.size(), parallelism * TASKS_PER_THREAD);
+        List<ForkJoinTask<Diagnostics>> tasks = new ArrayList<>();
+        for (int i = 0; i < slices; i++) {
+            List<Method> slice = methods.subList(methods.size() * i / slices, methods.size() * (i + 1) / slices);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Diagnostics sliceDiagnostics = diagnostics == null ? null : new Diagnostics();
+                readMethods(slice, new SymbolTable(), sliceDiagnostics);
+                return sliceDiagnostics;
+            }));
+        }
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause())
+                if (cause instanceof SJavaFormatException)
+                    throw (SJavaFormatException) cause;
+                else if (cause instanceof IOException)
+                    throw (IOException) cause;
+            throw e;
+        }
+        if (diagnostics != null)
+            for (ForkJoinTask<Diagnostics> task : tasks)
+                diagnostics.addAll(task.join());
+    }
+
+    /*
+     * Creates and adds to the method dictionary a new method. The lines of the method are
+     * read before its definition is checked, so that after an error the reader is past
+     * the method. Errors that don't know their line yet belong to the definition.
+     */
+    private void createMethod(CharSequence line, LineSource reader)
             throws SJavaFormatException, IOException {
-        Method method = new Method(this, createBlockLinesList(line, reader));
-        String name = method.getName();
-        if (methodDictionary.containsKey(name))
-            throw new SJavaFormatException();
-        methodDictionary.put(name, method);
+        LineBuffer buffer = pipeline == null ? lines : pipeline.buffer();
+        int start = buffer.size();
+        try {
+            Method method;
+            if (channel != null) { // Only the definition is kept, the body is read again once it's checked.
+                long offset = ((ChannelLineReader) reader).lineOffset();
+                buffer.add(line, reader.lineNumber(), reader.column());
+                skipBlockLines(reader, diagnostics);
+                method = new Method(this, buffer, start, start + 1);
+                methodOffsets.put(method, offset);
+            } else if (pipeline != null) { // Every method has its own lines, so it can be checked right away.
+                int end = addBlockLines(buffer, line, reader, diagnostics);
+                method = new Method(this, buffer.copy(start, end), 0, end - start);
+            } else
+                method = new Method(this, buffer, start, addBlockLines(buffer, line, reader, diagnostics));
+            String name = method.getName();
+            if (methodDictionary.containsKey(name))
+                throw new SJavaFormatException(Kind.DUPLICATE_METHOD);
+            methodDictionary.put(name, method);
+            if (pipeline != null)
+                pipeline.submit(method);
+        } catch (SJavaFormatException e) {
+            throw e.atLine(buffer.lineNumber(start), buffer.column(start));
+        }
     }
 }
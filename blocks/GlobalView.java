@@ -0,0 +1,117 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.SJavaFormatException.Kind;
+import oop.ex6.main.Type;
+import oop.ex6.main.Variable;
+
+import java.util.HashSet;
+
+/**
+ * A method's view of the global scope. Global variables that the method assigns are
+ * considered assigned only inside that method, so the global variables themselves are
+ * never changed and methods can be checked independently of each other.
+ * All the method's lookups in the global scope go through its view, so the view can record
+ * the names that the method depends on.
+ */
+class GlobalView {
+
+    // Variables.
+    private GlobalBlock global;
+    private HashSet<String> assigned;
+    private MethodResult dependencies;
+
+    /**
+     * Creates a new view in which no global variable has been assigned yet.
+     *
+     * @param global the GlobalBlock of this file.
+     */
+    GlobalView(GlobalBlock global) {
+        this.global = global;
+        assigned = new HashSet<>();
+    }
+
+    /**
+     * Forgets all the assignments that were made in this view.
+     */
+    void clear() {
+        assigned = new HashSet<>();
+    }
+
+    /**
+     * Sets the result that the names of the global variables and methods that are looked for
+     * through this view are recorded in.
+     *
+     * @param dependencies the result to record the names in, or null to stop recording.
+     */
+    void setDependencies(MethodResult dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * If exists and is assigned (globally or in this view), returns the type of the
+     * global variable with the given name. Otherwise, throws an SJavaException.
+     *
+     * @param name the name of the variable.
+     * @return the type of the variable.
+     */
+    Type getVariableType(String name) throws SJavaFormatException {
+        if (dependencies != null)
+            dependencies.addVariable(name);
+        Variable variable = global.getVariable(name);
+        if (variable == null) {
+            if (dependencies != null)
+                dependencies.addMissing(name);
+            throw new SJavaFormatException(Kind.UNKNOWN_VARIABLE);
+        }
+        if (!assigned.contains(name))
+            variable.use();
+        return variable.getType();
+    }
+
+    /**
+     * If exists in the global scope, return true if assigning the given value to the
+     * global variable with the given name is possible, and marks it as assigned in this view.
+     * If it doesn't exist returns false. If the value is incompatible with the variable,
+     * throws an SJavaException.
+     *
+     * @param name  the name of the variable.
+     * @param value the value to assign to the variable.
+     * @param scope the Block to look for the variable named by value in.
+     * @return true if the variable exists in the global scope and assignment succeeds.
+     * Otherwise, returns false.
+     */
+    boolean assignVariable(String name, String value, Block scope) throws SJavaFormatException {
+        if (dependencies != null)
+            dependencies.addVariable(name);
+        Variable toAssign = global.getVariable(name);
+        if (toAssign == null) {
+            if (dependencies != null)
+                dependencies.addMissing(name);
+            return false;
+        }
+        toAssign.checkAssignment(value, scope);
+        assigned.add(name);
+        return true;
+    }
+
+    /**
+     * Calls the method with the given name.
+     * Throws an SJavaException if it doesn't exist or if the list of types is incompatible
+     * with its parameters.
+     *
+     * @param name  the name of the method.
+     * @param types the variable types we're calling with. (Order is important)
+     */
+    void callMethod(String name, Type[] types) throws SJavaFormatException {
+        if (dependencies != null)
+            dependencies.addMethod(name);
+        Method toCall = global.getMethod(name);
+        if (toCall == null) {
+            if (dependencies != null)
+                dependencies.addMissing(name);
+            throw new SJavaFormatException(Kind.UNKNOWN_METHOD);
+        }
+        toCall.call(types);
+    }
+}
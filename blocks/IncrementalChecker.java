@@ -0,0 +1,66 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.LineSource;
+import oop.ex6.main.MappedLineReader;
+import oop.ex6.main.SJavaFormatException;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Checks the versions of a single SJava file one after the other, keeping the global scope
+ * and the result of every method between checks. Every version is read and its global scope
+ * and method signatures are checked again, but a method's contents are checked again only
+ * if its lines changed, or if a global variable or a method that it used or called was
+ * added, removed or declared differently. Gives the same results as GlobalBlock.
+ * Isn't thread-safe, a file should be checked by one thread at a time.
+ */
+public class IncrementalChecker {
+
+    // Variables.
+    private GlobalBlock last;
+
+    /**
+     * Checks the current version of the given file.
+     *
+     * @param file        the file path (including name) of the file to read.
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     *                    (See CheckOptions.recover)
+     */
+    public void check(String file, Diagnostics diagnostics) throws IOException, SJavaFormatException {
+        check(MappedLineReader.open(Paths.get(file)), diagnostics);
+    }
+
+    /**
+     * Checks the lines of the given source as the current version of the file.
+     * The source is closed once it has been read.
+     *
+     * @param source      the source to read the lines from.
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     */
+    public void check(LineSource source, Diagnostics diagnostics) throws IOException, SJavaFormatException {
+        GlobalBlock block = new GlobalBlock(new CheckOptions().source(source).recover(diagnostics)
+                .globalScopeOnly());
+        GlobalBlock previous = last;
+        last = block; // Kept even if a method has an error, with the results found so far.
+        block.readChangedMethods(previous);
+    }
+
+    /**
+     * Returns the number of methods whose contents were checked by the last check that got
+     * to the methods. (The rest of the methods reused their earlier results)
+     *
+     * @return the number of methods checked.
+     */
+    public int methodsChecked() {
+        return last == null ? 0 : last.getMethodsChecked();
+    }
+
+    /**
+     * Forgets the earlier versions, so the next check checks every method.
+     */
+    public void clear() {
+        last = null;
+    }
+}
@@ -0,0 +1,265 @@
+package oop.ex6.blocks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A compact store for the lines of all the methods in an SJava file.
+ * The characters of all the lines are kept one after the other in a single array
+ * (one byte per character while they all fit in Latin-1), and each line is identified
+ * by its index and found by its offset in the array. The number of the line in the file
+ * and the column it starts at are kept next to its offset, for reporting errors.
+ */
+class LineBuffer {
+
+    // Constants.
+    private static final int INITIAL_CHARS = 1 << 12, INITIAL_LINES = 1 << 8, LATIN1_LIMIT = 0xff,
+            BYTE_MASK = 0xff;
+
+    // Variables.
+    private byte[] latin1;
+    private char[] chars;
+    private int length, lineCount;
+    private int[] offsets, lineNumbers, columns;
+
+    /**
+     * Creates a new empty buffer.
+     */
+    LineBuffer() {
+        latin1 = new byte[INITIAL_CHARS];
+        offsets = new int[INITIAL_LINES + 1];
+        lineNumbers = new int[INITIAL_LINES + 1];
+        columns = new int[INITIAL_LINES + 1];
+    }
+
+    // Creates a buffer with a copy of the lines in the given range of the given buffer.
+    private LineBuffer(LineBuffer source, int start, int end) {
+        int from = source.offsets[start], to = source.offsets[end];
+        if (source.chars == null)
+            latin1 = Arrays.copyOfRange(source.latin1, from, to);
+        else
+            chars = Arrays.copyOfRange(source.chars, from, to);
+        length = to - from;
+        lineCount = end - start;
+        offsets = new int[lineCount + 1];
+        for (int i = 0; i <= lineCount; i++)
+            offsets[i] = source.offsets[start + i] - from;
+        lineNumbers = Arrays.copyOfRange(source.lineNumbers, start, end);
+        columns = Arrays.copyOfRange(source.columns, start, end);
+    }
+
+    /**
+     * Adds a copy of the given line to the end of the buffer.
+     *
+     * @param line       the line to add.
+     * @param lineNumber the number of the line in the file.
+     * @param column     the column that the line starts at in the file.
+     * @return the index of the line.
+     */
+    int add(CharSequence line, int lineNumber, int column) {
+        int lineLength = line.length();
+        ensureCapacity(length + lineLength);
+        for (int i = 0; i < lineLength; i++) {
+            char c = line.charAt(i);
+            if (chars == null && c > LATIN1_LIMIT)
+                inflate(length + i);
+            if (chars == null)
+                latin1[length + i] = (byte) c;
+            else
+                chars[length + i] = c;
+        }
+        length += lineLength;
+        if (lineCount + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            lineNumbers = Arrays.copyOf(lineNumbers, offsets.length);
+            columns = Arrays.copyOf(columns, offsets.length);
+        }
+        lineNumbers[lineCount] = lineNumber;
+        columns[lineCount] = column;
+        offsets[++lineCount] = length;
+        return lineCount - 1;
+    }
+
+    /**
+     * Returns the number of lines in the buffer.
+     *
+     * @return the number of lines in the buffer.
+     */
+    int size() {
+        return lineCount;
+    }
+
+    /**
+     * Returns a view of the line with the given index. (The line isn't copied)
+     *
+     * @param index the index of the line.
+     * @return a view of the line.
+     */
+    CharSequence get(int index) {
+        return new Line(offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * Returns the number in the file of the line with the given index.
+     *
+     * @param index the index of the line.
+     * @return the line number (starting from 1).
+     */
+    int lineNumber(int index) {
+        return lineNumbers[index];
+    }
+
+    /**
+     * Returns the column in the file that the line with the given index starts at.
+     *
+     * @param index the index of the line.
+     * @return the column (starting from 1).
+     */
+    int column(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Removes all the lines from the buffer, but keeps its capacity so it can be filled again.
+     * (Views of the removed lines must no longer be used)
+     */
+    void clear() {
+        length = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Returns a cursor over the lines in the given range.
+     *
+     * @param start the index of the first line.
+     * @param end   the index after the last line.
+     * @return a cursor that starts at the first line.
+     */
+    LineCursor cursor(int start, int end) {
+        return new LineCursor(this, start, end);
+    }
+
+    /**
+     * Releases the unused capacity of the buffer. Should be called once all the lines have been added.
+     */
+    void trim() {
+        if (chars == null)
+            latin1 = Arrays.copyOf(latin1, length);
+        else
+            chars = Arrays.copyOf(chars, length);
+        offsets = Arrays.copyOf(offsets, lineCount + 1);
+        lineNumbers = Arrays.copyOf(lineNumbers, lineCount);
+        columns = Arrays.copyOf(columns, lineCount);
+    }
+
+    /**
+     * Returns a new buffer with a copy of the lines in the given range, with no unused capacity.
+     *
+     * @param start the index of the first line.
+     * @param end   the index after the last line.
+     * @return the new buffer, in which the first line has the index 0.
+     */
+    LineBuffer copy(int start, int end) {
+        return new LineBuffer(this, start, end);
+    }
+
+    /**
+     * Returns true if the lines in the given range are the same as the lines in the given range
+     * of the other buffer: the same characters, starting at the same columns, and as far apart
+     * in the file. (Only the number of the first line may be different)
+     *
+     * @param start      the index of the first line.
+     * @param end        the index after the last line.
+     * @param other      the buffer to compare with.
+     * @param otherStart the index of the first line in the other buffer.
+     * @param otherEnd   the index after the last line in the other buffer.
+     * @return true if the lines are the same.
+     */
+    boolean sameLines(int start, int end, LineBuffer other, int otherStart, int otherEnd) {
+        if (end - start != otherEnd - otherStart
+                || offsets[end] - offsets[start] != other.offsets[otherEnd] - other.offsets[otherStart])
+            return false;
+        int lineShift = other.lineNumbers[otherStart] - lineNumbers[start],
+                offsetShift = other.offsets[otherStart] - offsets[start];
+        for (int i = start, j = otherStart; i < end; i++, j++)
+            if (other.lineNumbers[j] - lineNumbers[i] != lineShift || other.columns[j] != columns[i]
+                    || other.offsets[j + 1] - offsets[i + 1] != offsetShift)
+                return false;
+        for (int i = offsets[start]; i < offsets[end]; i++)
+            if (charAt(i) != other.charAt(i + offsetShift))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the number of characters that the buffer can hold before it grows.
+     *
+     * @return the capacity of the buffer.
+     */
+    int capacity() {
+        return chars == null ? latin1.length : chars.length;
+    }
+
+    // Returns the character at the given offset of the buffer.
+    private char charAt(int offset) {
+        return chars == null ? (char) (latin1[offset] & BYTE_MASK) : chars[offset];
+    }
+
+    // Makes sure the buffer can hold the given number of characters.
+    private void ensureCapacity(int capacity) {
+        int current = chars == null ? latin1.length : chars.length;
+        if (capacity <= current)
+            return;
+        int newCapacity = Math.max(capacity, current * 2);
+        if (chars == null)
+            latin1 = Arrays.copyOf(latin1, newCapacity);
+        else
+            chars = Arrays.copyOf(chars, newCapacity);
+    }
+
+    /*
+     * Switches to two bytes per character, once a character doesn't fit in Latin-1.
+     * (The given number of characters are copied, including the ones of the line being added)
+     */
+    private void inflate(int count) {
+        chars = new char[latin1.length];
+        for (int i = 0; i < count; i++)
+            chars[i] = (char) (latin1[i] & BYTE_MASK);
+        latin1 = null;
+    }
+
+    /*
+     * A view of a part of the buffer. (Reads the buffer's current array,
+     * so it stays valid while more lines are added)
+     */
+    private class Line implements CharSequence {
+
+        private int offset, length;
+
+        Line(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return LineBuffer.this.charAt(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Line(offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return chars == null ? new String(latin1, offset, length, StandardCharsets.ISO_8859_1)
+                    : new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.SJavaFormatException.Kind;
+
+/**
+ * Reads a range of lines from a LineBuffer, one after the other.
+ * A method and all of its SubBlocks read their lines from the same cursor.
+ */
+class LineCursor {
+
+    // Variables.
+    private LineBuffer lines;
+    private int start, next, end;
+
+    /**
+     * Creates a new cursor over the given range of lines.
+     *
+     * @param lines the buffer that holds the lines.
+     * @param start the index of the first line.
+     * @param end   the index after the last line.
+     */
+    LineCursor(LineBuffer lines, int start, int end) {
+        this.lines = lines;
+        this.start = start;
+        next = start;
+        this.end = end;
+    }
+
+    /**
+     * Returns the number of lines that haven't been read yet.
+     *
+     * @return the number of lines left.
+     */
+    int remaining() {
+        return end - next;
+    }
+
+    /**
+     * Returns the number in the file of the last line that was read (or of the first line,
+     * if no line has been read yet).
+     *
+     * @return the line number (starting from 1).
+     */
+    int lineNumber() {
+        return lines.lineNumber(current());
+    }
+
+    /**
+     * Returns the column in the file that the last line that was read starts at (or that
+     * the first line starts at, if no line has been read yet).
+     *
+     * @return the column (starting from 1).
+     */
+    int column() {
+        return lines.column(current());
+    }
+
+    /**
+     * Skips the lines of the block whose definition was the last line that was read,
+     * up to and including its closing line.
+     */
+    void skipBlock() throws SJavaFormatException {
+        int blockCounter = 0;
+        do {
+            blockCounter += Block.depthChange(next());
+        } while (blockCounter > -1);
+    }
+
+    /**
+     * Reads the next line. Throws an SJavaFormatException if there are no more lines,
+     * since that means that a block wasn't closed.
+     *
+     * @return the next line.
+     */
+    CharSequence next() throws SJavaFormatException {
+        if (next == end)
+            throw new SJavaFormatException(Kind.UNCLOSED_BLOCK);
+        return lines.get(next++);
+    }
+
+    // Returns the index of the last line that was read, or of the first line if none was read.
+    private int current() {
+        return next == start ? next : next - 1;
+    }
+}
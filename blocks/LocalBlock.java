@@ -1,104 +1,119 @@
 package oop.ex6.blocks;
 
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.LineScanner;
 import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.SJavaFormatException.Kind;
+import oop.ex6.main.Type;
 import oop.ex6.main.Variable;
 
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Abstract class that represents an inner block in an SJava file.
+ * All the local variables of a method, in all of its inner blocks, are kept in a single
+ * SymbolTable, and global variables are found through the method's GlobalView.
+ * The inner blocks are read by the same loop as the rest of the method's lines: opening
+ * a block pushes a scope on the symbol table and its closing line pops it, so the depth of
+ * the blocks is limited only by memory.
  */
 abstract class LocalBlock extends Block {
 
     // Constants.
-    private static final String VARIABLE_REGEX = "(?:final\\s+)?(?:int|String|boolean|double|char)[^;]+;",
-            CALL_REGEX = "([a-zA-Z]\\w*)\\s*\\(([^)]*)\\)\\s*;",
-            ASSIGNMENT_REGEX = "([a-zA-Z_]\\w*)\\s*=\\s*([^;]+)\\s*;",
-            SPLIT_REGEX = ",\\s*", ASSIGNMENT = "=", RETURN_REGEX = "return\\s*;";
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile(VARIABLE_REGEX),
-            CALL_PATTERN = Pattern.compile(CALL_REGEX),
-            ASSIGNMENT_PATTERN = Pattern.compile(ASSIGNMENT_REGEX),
-            RETURN_PATTERN = Pattern.compile(RETURN_REGEX);
     private static final int NAME_GROUP = 1, VALUE_GROUP = 2;
+    private static final Type[] NO_TYPES = {};
 
     // Variables.
-    private GlobalBlock global;
-    private Block parent;
+    private GlobalView view;
+    private SymbolTable symbols;
+    private Diagnostics diagnostics;
 
     /**
-     * Creates a new LocalBlock.
+     * Creates a new outermost LocalBlock. (Its symbol table is given once it's read)
      *
-     * @param parent the parent Block of this LocalBlock.
-     * @param global the GlobalBlock of this file.
+     * @param view the view of the global scope that this LocalBlock and its inner blocks use.
      */
-    LocalBlock(Block parent, GlobalBlock global) {
-        this.parent = parent;
-        this.global = global;
+    LocalBlock(GlobalView view) {
+        this.view = view;
     }
 
     /**
-     * Interprets a single line inside a LocalBlock. If the line is a definition of
-     * a new Block then a new SubBlock is created and checked for errors.
+     * Reads the lines of this LocalBlock from the given cursor, until only the given number of
+     * lines are left outside of any inner block. The lines of the inner blocks are read by the
+     * same loop, in the scopes that their definitions open.
      *
-     * @param line     the line to interpret.
-     * @param iterator an iterator that provides any subsequent lines.
+     * @param cursor    a cursor that provides the lines.
+     * @param lastLines the number of lines to leave for the caller.
      */
-    void readLine(String line, Iterator<String> iterator)
-            throws SJavaFormatException {
-        if (line == null)
-            throw new SJavaFormatException();
-        char end = line.charAt(line.length() - 1);
-        if (end == SINGLE_LINE)
-            handleSingleLine(line);
-        else if (end == BLOCK)
-            new SubBlock(line, iterator, this, global);
-        else
-            throw new SJavaFormatException();
+    void readLines(LineCursor cursor, int lastLines) throws SJavaFormatException {
+        while (symbols.depth() > 0 || cursor.remaining() > lastLines) {
+            CharSequence line = cursor.next();
+            if (symbols.depth() > 0 && BLOCK_END.contentEquals(line))
+                symbols.exitScope(); // The end of an inner block.
+            else
+                readLine(line, cursor);
+        }
     }
 
-    /**
-     * If exists in this scope or an outer scope, return true if assigning the given
-     * value to the variable with the given name is possible. If it doesn't exist or
-     * if the value is incompatible with the variable, throws an SJavaException.
-     *
-     * @param name  the name of the variable.
-     * @param value the value to assign to the variable.
-     * @return true if the variable exists in this scope and assignment succeeds.
+    /*
+     * Interprets a single line inside a LocalBlock. If the line is a definition of a new
+     * SubBlock then its definition is checked, and a scope is opened for its lines.
+     * When recovering from errors, an error in the line is added to the buffer of errors.
+     * If only the condition of an if or while block is wrong, its lines are still read in a
+     * scope of their own, and if the line isn't an if or while definition at all, the whole
+     * block is skipped. (A block that isn't closed still ends the check of the method)
      */
-    @Override
-    boolean assignVariable(String name, String value) throws SJavaFormatException {
-        return super.assignVariable(name, value) || parent.assignVariable(name, value);
+    private void readLine(CharSequence line, LineCursor cursor) throws SJavaFormatException {
+        char end = line.charAt(line.length() - 1);
+        try {
+            if (end == SINGLE_LINE)
+                handleSingleLine(line);
+            else if (end == BLOCK) {
+                SubBlock.checkDefinition(line, this);
+                symbols.enterScope();
+            } else
+                throw new SJavaFormatException(Kind.INVALID_LINE);
+        } catch (SJavaFormatException e) {
+            if (diagnostics == null)
+                throw e;
+            diagnostics.add(e.atLine(cursor.lineNumber(), cursor.column()));
+            if (end == BLOCK && e.getKind() == Kind.INVALID_LINE)
+                cursor.skipBlock(); // Not a block that can be read.
+            else if (end == BLOCK)
+                symbols.enterScope();
+        }
     }
 
     /**
-     * If exists in this scope, return true if assigning the given value to the variable
-     * with the given name is possible. If it doesn't exist returns false.
-     * If the value is incompatible with the variable,
-     * throws an SJavaException.
+     * Adds the given list of variables to the current scope.
+     * Throws an SJavaException if one of them has the same name as a variable of this scope.
      *
-     * @param name  the name of the variable.
-     * @param value the value to assign to the variable.
-     * @return true if the variable exists in this scope and assignment succeeds. Otherwise, returns false.
+     * @param variableList the list of variables to add.
      */
-    boolean assignVariableToThis(String name, String value) throws SJavaFormatException {
-        return super.assignVariable(name, value);
+    @Override
+    void addVariables(List<Variable> variableList) throws SJavaFormatException {
+        for (Variable variable : variableList)
+            if (!symbols.declare(variable))
+                throw new SJavaFormatException(Kind.NAME_CONFLICT); // Variable name conflict.
     }
 
     /**
-     * If exists in the global scope, return true if assigning the given value to the variable
-     * with the given name is possible. If it doesn't exist or
-     * if the value is incompatible with the variable, throws an SJavaException.
+     * If exists in this scope or an outer scope, return true if assigning the given
+     * value to the variable with the given name is possible. If it doesn't exist returns false.
+     * If the value is incompatible with the variable, throws an SJavaException.
+     * (The variable named by value is looked for in this scope)
      *
      * @param name  the name of the variable.
      * @param value the value to assign to the variable.
-     * @return true if the variable exists in this scope and assignment succeeds.
+     * @return true if the variable exists and assignment succeeds. Otherwise, returns false.
      */
-    boolean assignVariableToGlobal(String name, String value) throws SJavaFormatException {
-        return global.assignVariable(name, value);
+    @Override
+    boolean assignVariable(String name, String value) throws SJavaFormatException {
+        Variable toAssign = symbols.lookup(name);
+        if (toAssign == null)
+            return view.assignVariable(name, value, this);
+        toAssign.assign(value, this);
+        return true;
     }
 
     /**
@@ -110,16 +125,30 @@ abstract class LocalBlock extends Block {
      * @return the type of the variable.
      */
     @Override
-    public String getVariableType(String name) throws SJavaFormatException {
-        String type = super.getVariableType(name);
-        if (type != null)
-            return type;
-        return parent.getVariableType(name);
+    public Type getVariableType(String name) throws SJavaFormatException {
+        Variable variable = symbols.lookup(name);
+        if (variable == null)
+            return view.getVariableType(name);
+        variable.use();
+        return variable.getType();
     }
 
-    @Override
-    void revertVariable(String name) throws SJavaFormatException {
-        global.revertVariable(name);
+    /**
+     * Sets the symbol table that this LocalBlock and its inner blocks keep their variables in.
+     *
+     * @param symbols the symbol table to use, or null once the block has been read.
+     */
+    void setSymbols(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Sets the buffer that this LocalBlock and its inner blocks add their errors to.
+     *
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     */
+    void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
     }
 
     /**
@@ -127,40 +156,54 @@ abstract class LocalBlock extends Block {
      *
      * @param line the line to check.
      */
-    void parseReturn(String line) throws SJavaFormatException {
-        if (!RETURN_PATTERN.matcher(line).matches())
-            throw new SJavaFormatException();
+    void parseReturn(CharSequence line) throws SJavaFormatException {
+        if (!LineScanner.isReturn(line))
+            throw new SJavaFormatException(Kind.MISSING_RETURN);
     }
 
     // Handles a single line in a LocalBlock.
-    private void handleSingleLine(String line) throws SJavaFormatException {
-        if (RETURN_PATTERN.matcher(line).matches())
+    private void handleSingleLine(CharSequence line) throws SJavaFormatException {
+        if (LineScanner.isReturn(line))
             return;
-        if (VARIABLE_PATTERN.matcher(line).matches()) // Definition of new variable.
+        if (LineScanner.isDefinition(line)) // Definition of new variable.
             addVariables(Variable.interpretVariables(line, this));
-        else if (line.contains(ASSIGNMENT)) { // Assign value to existing variable.
-            Matcher matcher = ASSIGNMENT_PATTERN.matcher(line);
-            if (!matcher.matches())
-                throw new SJavaFormatException();
-            assignVariable(matcher.group(NAME_GROUP), matcher.group(VALUE_GROUP).trim());
+        else if (LineScanner.containsAssignment(line)) { // Assign value to existing variable.
+            LineScanner scanner = new LineScanner();
+            if (!scanner.matchAssignment(line))
+                throw new SJavaFormatException(Kind.INVALID_LINE);
+            boolean exists;
+            try {
+                exists = assignVariable(scanner.group(NAME_GROUP), scanner.group(VALUE_GROUP).trim());
+            } catch (SJavaFormatException e) { // Only a final variable isn't a problem of the value.
+                throw e.getKind() == Kind.FINAL_ASSIGNMENT ? e : e.atOffset(scanner.start(VALUE_GROUP));
+            }
+            if (!exists)
+                throw new SJavaFormatException(Kind.UNKNOWN_VARIABLE); // Variable doesn't exist.
         } else { // Call method.
-            Matcher matcher = CALL_PATTERN.matcher(line);
-            if (!matcher.matches())
-                throw new SJavaFormatException();
-            global.callMethod(matcher.group(NAME_GROUP), getTypeList(matcher.group(VALUE_GROUP).trim()));
+            LineScanner scanner = new LineScanner();
+            if (!scanner.matchCall(line))
+                throw new SJavaFormatException(Kind.INVALID_LINE);
+            Type[] types;
+            try {
+                types = getTypes(scanner.group(VALUE_GROUP).trim());
+            } catch (SJavaFormatException e) {
+                throw e.atOffset(scanner.start(VALUE_GROUP));
+            }
+            view.callMethod(scanner.group(NAME_GROUP), types);
         }
     }
 
-    // Returns a list of Variable types according to the given method call values.
-    private List<String> getTypeList(String values) throws SJavaFormatException {
-        List<String> typeList = new LinkedList<>();
-        if (!values.isEmpty())
-            for (String value : values.split(SPLIT_REGEX)) {
-                String type = Variable.parse(value);
-                if (type == null)
-                    type = getVariableType(value);
-                typeList.add(type);
-            }
-        return typeList;
+    // Returns the Variable types of the given method call values.
+    private Type[] getTypes(String values) throws SJavaFormatException {
+        if (values.isEmpty())
+            return NO_TYPES;
+        String[] valueArray = LineScanner.splitArguments(values);
+        Type[] types = new Type[valueArray.length];
+        for (int i = 0; i < valueArray.length; i++) {
+            types[i] = Type.ofValue(valueArray[i]);
+            if (types[i] == null)
+                types[i] = getVariableType(valueArray[i]);
+        }
+        return types;
     }
 }
@@ -1,14 +1,16 @@
 package oop.ex6.blocks;
 
+import oop.ex6.blocks.CheckEvents.MethodEvent;
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.LineScanner;
 import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.SJavaFormatException.Kind;
+import oop.ex6.main.Type;
 import oop.ex6.main.Variable;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Represents a method in an SJava file.
@@ -16,83 +18,243 @@ import java.util.regex.Pattern;
 class Method extends LocalBlock {
 
     // Constants.
-    private static final String METHOD_REGEX = "void\\s+([a-zA-Z]\\w*)\\s*\\(([^)]*)\\)\\s*\\{",
-            INT = "int", DOUBLE = "double", BOOLEAN = "boolean";
-    private static final Pattern METHOD_PATTERN = Pattern.compile(METHOD_REGEX);
-    private static final int DEFINITION = 0, STARTING_INDEX = 1, NAME_GROUP = 1, VARIABLES_GROUP = 2;
+    private static final int LAST_LINE = 1, NAME_GROUP = 1, VARIABLES_GROUP = 2;
 
     // Variables.
-    private List<String> lines, parameterTypes, toRevert;
+    private Type[] parameterTypes;
+    private GlobalView view;
+    private LineBuffer lines;
+    private int start, end;
     private String name;
+    private MethodResult result;
 
     /**
      * Creates a new Method and checks the definition for errors.
+     * The method sees the global scope through its own GlobalView, so checking it
+     * never changes the state of the global variables. Only the types of the parameters
+     * are kept until the method is read, the parameters themselves are created by readMethod.
      *
      * @param global the Block that contains this method.
-     * @param lines  the lines of method (excludes closing line).
+     * @param lines  the buffer that holds the lines of the method.
+     * @param start  the index of the method's definition line.
+     * @param end    the index after the method's last line (excludes closing line).
      */
-    Method(GlobalBlock global, List<String> lines) throws SJavaFormatException {
-        super(global, global);
+    Method(GlobalBlock global, LineBuffer lines, int start, int end) throws SJavaFormatException {
+        this(new GlobalView(global), lines, start, end);
+    }
+
+    // Creates a new Method that sees the global scope through the given view.
+    private Method(GlobalView view, LineBuffer lines, int start, int end) throws SJavaFormatException {
+        super(view);
+        this.view = view;
         this.lines = lines;
-        Matcher matcher = METHOD_PATTERN.matcher(lines.get(DEFINITION));
-        if (!matcher.matches())
-            throw new SJavaFormatException(); // Method definition incorrect.
-        name = matcher.group(NAME_GROUP);
-        toRevert = new LinkedList<>();
-        parameterTypes = new LinkedList<>();
-        String variablesString = matcher.group(VARIABLES_GROUP);
-        if (variablesString != null && !(variablesString = variablesString.trim()).isEmpty()) {
-            List<Variable> variables = Variable.interpretVariables(variablesString);
-            for (Variable variable : variables)
-                parameterTypes.add(variable.getType());
-            addVariables(variables);
+        this.start = start;
+        this.end = end;
+        try {
+            LineScanner scanner = new LineScanner();
+            if (!scanner.matchMethod(lines.get(start)))
+                throw new SJavaFormatException(Kind.INVALID_METHOD_DEFINITION); // Method definition incorrect.
+            name = scanner.group(NAME_GROUP);
+            List<Variable> parameters = interpretParameters(scanner);
+            parameterTypes = new Type[parameters.size()];
+            for (int i = 0; i < parameterTypes.length; i++)
+                parameterTypes[i] = parameters.get(i).getType();
+        } catch (SJavaFormatException e) {
+            throw e.atLine(lines.lineNumber(start), lines.column(start));
         }
     }
 
     /**
      * Checks the method lines for errors.
+     *
+     * @param symbols     the symbol table to keep the local variables in. (Empty when given and
+     *                    emptied again once the method has been read)
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     */
+    void readMethod(SymbolTable symbols, Diagnostics diagnostics) throws SJavaFormatException {
+        readMethod(lines, start, end, symbols, diagnostics);
+    }
+
+    /**
+     * Checks the method lines for errors, and keeps the result together with the names of the
+     * global variables and methods that it depends on. Errors are added to the result instead
+     * of being thrown.
+     *
+     * @param symbols the symbol table to keep the local variables in.
+     * @param recover whether to keep checking the method after an error.
+     * @return the result of the check.
+     */
+    MethodResult readResult(SymbolTable symbols, boolean recover) {
+        result = new MethodResult(getLineNumber());
+        view.setDependencies(result);
+        try {
+            readMethod(symbols, recover ? result.getErrors() : null);
+        } catch (SJavaFormatException e) {
+            result.getErrors().add(e);
+        } finally {
+            view.setDependencies(null);
+            result.freeze();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the result that readResult kept, or that was given to this method.
+     *
+     * @return the result of the method, or null if it hasn't been checked.
+     */
+    MethodResult getResult() {
+        return result;
+    }
+
+    /**
+     * Sets the result of this method, found when an earlier version of it was checked.
+     *
+     * @param result the result of the method.
+     */
+    void setResult(MethodResult result) {
+        this.result = result;
+    }
+
+    /**
+     * Returns true if the lines of the given method are the same as the lines of this method.
+     * (See LineBuffer.sameLines)
+     *
+     * @param other the method to compare with.
+     * @return true if both methods have the same lines.
+     */
+    boolean sameLines(Method other) {
+        return lines.sameLines(start, end, other.lines, other.start, other.end);
+    }
+
+    /**
+     * Returns true if the given method has the same parameter types as this method.
+     *
+     * @param other the method to compare with.
+     * @return true if both methods can be called with the same arguments.
+     */
+    boolean sameSignature(Method other) {
+        return Arrays.equals(parameterTypes, other.parameterTypes);
+    }
+
+    /**
+     * Checks the given lines of the method for errors. (Used when the lines of the
+     * method aren't kept in memory, and are read again just to be checked)
+     * The parameters, local variables and assignments of global variables only exist
+     * while the method is being read.
+     *
+     * @param lines   the buffer that holds the lines of the method.
+     * @param start   the index of the method's definition line.
+     * @param end     the index after the method's last line (excludes closing line).
+     * @param symbols     the symbol table to keep the local variables in. (Empty when given and
+     *                    emptied again once the method has been read)
+     * @param diagnostics the buffer to add the errors to, or null to stop at the first error.
+     *                    (When given, the errors of the method's statements are added to it, and
+     *                    the rest of the method is still checked)
      */
-    void readMethod() throws SJavaFormatException {
-        ListIterator<String> iterator = lines.listIterator(STARTING_INDEX);
-        for (int i = STARTING_INDEX; i < (lines.size() - 1); i = iterator.nextIndex())
-            readLine(iterator.next(), iterator);
-        parseReturn(iterator.next()); // Method must end with 'return;'.
-        revertGlobalVariables(); // Returns global variables to their previous state.
+    void readMethod(LineBuffer lines, int start, int end, SymbolTable symbols, Diagnostics diagnostics)
+            throws SJavaFormatException {
+        MethodEvent event = CheckEvents.isEnabled() ? new MethodEvent() : null;
+        if (event != null)
+            event.begin();
+        LineScanner scanner = new LineScanner();
+        LineCursor cursor = lines.cursor(start, end);
+        setSymbols(symbols);
+        setDiagnostics(diagnostics);
+        try {
+            if (!scanner.matchMethod(cursor.next()))
+                throw new SJavaFormatException(Kind.INVALID_METHOD_DEFINITION);
+            addVariables(interpretParameters(scanner));
+            readLines(cursor, LAST_LINE);
+            parseReturn(cursor.next()); // Method must end with 'return;'.
+        } catch (SJavaFormatException e) {
+            e.atLine(cursor.lineNumber(), cursor.column());
+            if (diagnostics == null)
+                throw e;
+            diagnostics.add(e);
+        } finally {
+            commit(event, end - start, symbols);
+            symbols.reset();
+            setSymbols(null);
+            setDiagnostics(null);
+            view.clear();
+        }
     }
 
     /**
      * Calls this method.
-     * Throws an SJavaFormatException if the type list isn't compatible
+     * Throws an SJavaFormatException if the types aren't compatible
      * with this method's parameter requirements.
      *
-     * @param typeList A list of types to compare with. (Order is important)
+     * @param types the types to compare with. (Order is important)
      */
-    void call(List<String> typeList) throws SJavaFormatException {
-        if (typeList.size() != parameterTypes.size())
-            throw new SJavaFormatException();
-        Iterator<String> ParameterIterator = parameterTypes.iterator(), typeIterator = typeList.iterator();
-        while (ParameterIterator.hasNext()) {
-            String parameter = ParameterIterator.next(), type = typeIterator.next();
-            if (!parameter.equals(type))
-                switch (parameter) {
-                    case BOOLEAN:
-                        if (type.equals(DOUBLE))
-                            break;
-                    case DOUBLE:
-                        if (type.equals(INT))
-                            break;
-                    default:
-                        throw new SJavaFormatException();
-                }
+    void call(Type[] types) throws SJavaFormatException {
+        if (types.length != parameterTypes.length)
+            throw new SJavaFormatException(Kind.WRONG_ARGUMENTS);
+        for (int i = 0; i < types.length; i++)
+            if (!parameterTypes[i].accepts(types[i]))
+                throw new SJavaFormatException(Kind.WRONG_ARGUMENTS);
+    }
+
+    // Commits the event of checking this method, if it's being recorded.
+    private void commit(MethodEvent event, int lineCount, SymbolTable symbols) {
+        if (event == null)
+            return;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.method = name;
+        event.lines = lineCount;
+        event.subBlocks = symbols.scopesEntered();
+        event.commit();
+    }
+
+    // Returns the parameters of the method definition that the given scanner has matched.
+    private static List<Variable> interpretParameters(LineScanner scanner) throws SJavaFormatException {
+        String variablesString = scanner.group(VARIABLES_GROUP);
+        if (variablesString == null || (variablesString = variablesString.trim()).isEmpty())
+            return Collections.emptyList();
+        try {
+            return Variable.interpretParameters(variablesString);
+        } catch (SJavaFormatException e) {
+            throw e.atOffset(scanner.start(VARIABLES_GROUP));
         }
     }
 
-    @Override
-    boolean assignVariable(String name, String value) throws SJavaFormatException {
-        if (assignVariableToThis(name, value))
-            return true;
-        toRevert.add(name);
-        return assignVariableToGlobal(name, value);
+    /**
+     * Returns the number in the file of the line that defines this method.
+     *
+     * @return the line number (starting from 1).
+     */
+    int getLineNumber() {
+        return lines.lineNumber(start);
+    }
+
+    /**
+     * Returns the column that the definition of this method starts at.
+     *
+     * @return the column (starting from 1).
+     */
+    int getColumn() {
+        return lines.column(start);
+    }
+
+    /**
+     * Returns the line that defines this method.
+     *
+     * @return the definition line.
+     */
+    String getDefinition() {
+        return lines.get(start).toString();
+    }
+
+    /**
+     * Returns the types of the parameters of this method.
+     *
+     * @return a copy of the parameter types, in order.
+     */
+    Type[] getParameterTypes() {
+        return parameterTypes.clone();
     }
 
     /**
@@ -103,13 +265,4 @@ class Method extends LocalBlock {
     String getName() {
         return name;
     }
-
-    /*
-     * Reverts all global variables whose assignment was changed by this
-     * method to their previous state.
-     */
-    private void revertGlobalVariables() throws SJavaFormatException {
-        for (String name : toRevert)
-            revertVariable(name);
-    }
 }
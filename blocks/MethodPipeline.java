@@ -0,0 +1,108 @@
+package oop.ex6.blocks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The checker stage of a file that is checked as a pipeline: the contents of every method are
+ * checked on a pool of workers as soon as the method has been read, while the rest of the file
+ * is still being read. (See CheckOptions.pipelined)
+ * The pool isn't owned by the pipeline, so any number of files can share it, and no threads are
+ * created per file. Only a few methods per worker may be waiting to be checked: once they are
+ * all taken, the thread that reads the file checks the next method itself instead of waiting,
+ * so the workers of a shared pool never block each other, and the lines of the methods that
+ * were checked can be collected.
+ * A method that was checked before the global variables or methods that it uses were read gets
+ * errors that it wouldn't otherwise have, so once the whole file has been read, every method
+ * that looked for a name that has been defined since is checked again.
+ */
+class MethodPipeline {
+
+    // Constants.
+    private static final int TASKS_PER_THREAD = 4;
+
+    // Variables.
+    private ForkJoinPool pool;
+    private Semaphore slots;
+    private ThreadLocal<SymbolTable> symbols;
+    private boolean recover;
+    private LineBuffer buffer;
+    private List<Method> methods;
+    private List<ForkJoinTask<?>> tasks;
+
+    /**
+     * Creates a new pipeline that checks the methods in the given pool, or in the common pool.
+     *
+     * @param pool    the pool to check the methods in, or null.
+     * @param recover whether to keep checking every method after an error.
+     */
+    MethodPipeline(ForkJoinPool pool, boolean recover) {
+        this.recover = recover;
+        this.pool = pool != null ? pool : ForkJoinPool.commonPool();
+        slots = new Semaphore(this.pool.getParallelism() * TASKS_PER_THREAD);
+        symbols = ThreadLocal.withInitial(SymbolTable::new);
+        buffer = new LineBuffer();
+        methods = new ArrayList<>();
+        tasks = new ArrayList<>();
+    }
+
+    /**
+     * Returns an empty buffer to read the lines of the next method into. (The same buffer is
+     * returned every time, so the lines must be copied before the method is submitted)
+     *
+     * @return the empty buffer.
+     */
+    LineBuffer buffer() {
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Checks the contents of the given method on one of the workers, or on this thread if too
+     * many methods are already waiting to be checked.
+     *
+     * @param method the method to check, whose lines were copied to a buffer of its own.
+     */
+    void submit(Method method) {
+        methods.add(method);
+        if (!slots.tryAcquire()) {
+            method.readResult(symbols.get(), recover);
+            return;
+        }
+        tasks.add(pool.submit(() -> {
+            try {
+                method.readResult(symbols.get(), recover);
+            } finally {
+                slots.release();
+            }
+        }));
+    }
+
+    /**
+     * Waits for all the methods to be checked, and checks again the ones that looked for a
+     * name that the given global scope defines. Should be called once the whole file has been read.
+     *
+     * @param global the complete global scope of the file.
+     * @return the methods, in the order they were submitted, each with its result.
+     */
+    List<Method> finish(GlobalBlock global) {
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+        SymbolTable table = symbols.get();
+        for (Method method : methods)
+            if (method.getResult().hasResolved(global))
+                method.readResult(table, recover);
+        return methods;
+    }
+
+    /**
+     * Cancels the methods that are still waiting to be checked. (The pool itself is left running)
+     */
+    void cancel() {
+        for (ForkJoinTask<?> task : tasks)
+            task.cancel(false);
+    }
+}
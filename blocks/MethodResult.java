@@ -0,0 +1,146 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.Variable;
+
+import java.util.HashSet;
+
+/**
+ * The result of checking the body of a method, and the names of the global variables and
+ * methods that the result depends on. (Every name that the method looked for in the global
+ * scope, including the ones that weren't found) As long as the method's lines and all of
+ * these stay the same, checking the method again would give the same result.
+ * The names are collected in sets while the method is checked, and kept in arrays once the
+ * check is done. The names that weren't found are also kept apart, for checking a method
+ * before the whole global scope has been read. (See MethodPipeline)
+ */
+class MethodResult {
+
+    // Variables.
+    private Diagnostics errors;
+    private int lineNumber;
+    private HashSet<String> variableSet, methodSet, missingSet;
+    private String[] variables, methods, missing;
+
+    /**
+     * Creates a new empty result of the method that is defined in the given line.
+     *
+     * @param lineNumber the number of the line that defines the method.
+     */
+    MethodResult(int lineNumber) {
+        this.lineNumber = lineNumber;
+        errors = new Diagnostics();
+        variableSet = new HashSet<>();
+        methodSet = new HashSet<>();
+        missingSet = new HashSet<>();
+    }
+
+    /**
+     * Returns the buffer that the errors of the method are added to.
+     *
+     * @return the errors of the method.
+     */
+    Diagnostics getErrors() {
+        return errors;
+    }
+
+    /**
+     * Records that the method looked for the global variable with the given name.
+     *
+     * @param name the name of the variable.
+     */
+    void addVariable(String name) {
+        variableSet.add(name);
+    }
+
+    /**
+     * Records that the method called the method with the given name.
+     *
+     * @param name the name of the method.
+     */
+    void addMethod(String name) {
+        methodSet.add(name);
+    }
+
+    /**
+     * Records that the global variable or method with the given name wasn't found.
+     *
+     * @param name the name of the variable or method.
+     */
+    void addMissing(String name) {
+        missingSet.add(name);
+    }
+
+    /**
+     * Keeps the recorded names, once the method has been checked.
+     */
+    void freeze() {
+        variables = variableSet.toArray(new String[0]);
+        methods = methodSet.toArray(new String[0]);
+        missing = missingSet.toArray(new String[0]);
+        variableSet = null;
+        methodSet = null;
+        missingSet = null;
+    }
+
+    /**
+     * Returns true if any of the global variables and methods that weren't found when the
+     * method was checked exists in the given global scope, so checking it again may give
+     * another result.
+     *
+     * @param global the global scope to look for the names in.
+     * @return true if a name that wasn't found is now defined.
+     */
+    boolean hasResolved(GlobalBlock global) {
+        for (String name : missing)
+            if (global.getVariable(name) != null || global.getMethod(name) != null)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns true if every global variable and method that the result depends on is the same
+     * in both of the given global scopes. (Declared the same way, or missing from both)
+     *
+     * @param previous the global scope that the result is known to be valid in.
+     * @param current  the global scope to check the result for.
+     * @return true if the result is also valid in the current global scope.
+     */
+    boolean isValid(GlobalBlock previous, GlobalBlock current) {
+        for (String name : variables) {
+            Variable before = previous.getVariable(name), after = current.getVariable(name);
+            if (before == null ? after != null : after == null || !before.sameDeclaration(after))
+                return false;
+        }
+        for (String name : methods) {
+            Method before = previous.getMethod(name), after = current.getMethod(name);
+            if (before == null ? after != null : after == null || !before.sameSignature(after))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the errors of the method to the given buffer, moved to where the method is now.
+     *
+     * @param diagnostics the buffer to add the errors to.
+     * @param lineNumber  the number of the line that defines the method now.
+     */
+    void addErrors(Diagnostics diagnostics, int lineNumber) {
+        diagnostics.addAll(errors, lineNumber - this.lineNumber);
+    }
+
+    /**
+     * Returns the first error of the method, moved to where the method is now.
+     *
+     * @param lineNumber the number of the line that defines the method now.
+     * @return the first error, or null if the method is legal.
+     */
+    SJavaFormatException getFirstError(int lineNumber) {
+        if (errors.isEmpty())
+            return null;
+        return new SJavaFormatException(errors.getKind(0))
+                .atLine(errors.getLine(0) + lineNumber - this.lineNumber, errors.getColumn(0));
+    }
+}
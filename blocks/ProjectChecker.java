@@ -0,0 +1,158 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.Diagnostics;
+import oop.ex6.main.SJavaFormatException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Checks a set of SJava files as a single project, in which the methods of every file can use
+ * the global variables and call the methods that the other files define. (See ProjectIndex)
+ * Every file is read once, and all of them concurrently. Then a single index of the global
+ * scopes of all the files is built, and then the methods of all the files are checked
+ * concurrently against it. Global declarations only see the global variables of their own
+ * file, since they're read before the index can be built.
+ * The lines of the methods of all the files are held in memory until the check is done.
+ */
+public class ProjectChecker {
+
+    // Variables.
+    private int parallelism;
+    private boolean recover;
+    private Diagnostics[] errors;
+    private long[] nanos;
+
+    /**
+     * Creates a new project checker that uses every available core.
+     *
+     * @param recover whether to recover from format errors and report all of them,
+     *                instead of stopping at the first error of every file.
+     */
+    public ProjectChecker(boolean recover) {
+        this(Runtime.getRuntime().availableProcessors(), recover);
+    }
+
+    /**
+     * Creates a new project checker.
+     *
+     * @param parallelism the number of files to check at the same time.
+     * @param recover     whether to recover from format errors and report all of them,
+     *                    instead of stopping at the first error of every file.
+     */
+    public ProjectChecker(int parallelism, boolean recover) {
+        this.parallelism = parallelism;
+        this.recover = recover;
+    }
+
+    /**
+     * Checks the given files as a single project. The results of the files can then be
+     * found by their index in the list.
+     *
+     * @param files the files of the project.
+     */
+    public void check(List<Path> files) {
+        int count = files.size();
+        GlobalBlock[] blocks = new GlobalBlock[count];
+        errors = new Diagnostics[count];
+        nanos = new long[count];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            runAll(pool, count, index -> read(files.get(index), index, blocks));
+            List<GlobalBlock> read = new ArrayList<>();
+            for (GlobalBlock block : blocks)
+                if (block != null)
+                    read.add(block);
+            ProjectIndex project = new ProjectIndex(read);
+            runAll(pool, count, index -> checkMethods(blocks[index], index, project));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the errors of the file with the given index, sorted by their position when
+     * recovering from errors. (Otherwise only the first error of the file)
+     *
+     * @param index the index of the file.
+     * @return the errors of the file, or null if it couldn't be read.
+     */
+    public Diagnostics getErrors(int index) {
+        return errors[index];
+    }
+
+    /**
+     * Returns the time that checking the file with the given index took, reading it and
+     * checking its methods.
+     *
+     * @param index the index of the file.
+     * @return the time in nanoseconds.
+     */
+    public long getNanos(int index) {
+        return nanos[index];
+    }
+
+    // Runs the action with every index up to the given count in the pool, and waits for all of them.
+    private static void runAll(ForkJoinPool pool, int count, IntConsumer action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(pool.submit(() -> action.accept(index)));
+        }
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+    }
+
+    /*
+     * Reads the global scope of the given file. The errors of the global scope are always
+     * collected, so a file with an error still adds the rest of its global scope to the index.
+     */
+    private void read(Path file, int index, GlobalBlock[] blocks) {
+        long start = System.nanoTime();
+        Diagnostics diagnostics = new Diagnostics();
+        try {
+            blocks[index] = new GlobalBlock(new CheckOptions().file(file).recover(diagnostics).globalScopeOnly());
+            errors[index] = diagnostics;
+        } catch (SJavaFormatException e) {
+            diagnostics.add(e);
+            errors[index] = diagnostics;
+        } catch (IOException e) {
+            errors[index] = null;
+        }
+        nanos[index] = System.nanoTime() - start;
+    }
+
+    /*
+     * Checks the methods of the given file against the index of the project, after reporting the
+     * names that the file defines and another file defines too. Unless recovering
+     * from errors, a file whose global scope has an error keeps only that error, the first one.
+     */
+    private void checkMethods(GlobalBlock block, int index, ProjectIndex project) {
+        if (block == null)
+            return;
+        long start = System.nanoTime();
+        Diagnostics diagnostics = errors[index];
+        block.setProject(project);
+        try {
+            if (recover) {
+                block.checkProjectNames(diagnostics);
+                block.checkMethods(diagnostics);
+            } else if (diagnostics.isEmpty()) {
+                block.checkProjectNames(null);
+                block.checkMethods(null);
+            }
+            else if (diagnostics.size() > 1) {
+                errors[index] = new Diagnostics();
+                errors[index].add(diagnostics.getKind(0), diagnostics.getLine(0), diagnostics.getColumn(0));
+            }
+        } catch (SJavaFormatException e) {
+            diagnostics.add(e);
+        }
+        nanos[index] += System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,91 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.Variable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The global variables and methods of all the files of a project, in which the methods of every
+ * file find the ones that their own file doesn't define. Built once every file of the project
+ * has been read, and never changed afterwards, so any number of threads can read it at the same
+ * time. A name that more than one file defines is a duplicate, which every file that defines
+ * it reports. (See GlobalBlock.checkProjectNames) The other files still find the first of its
+ * definitions, so that their uses of the name aren't reported too. (A file that defines the
+ * name finds its own definition, since it looks in its own file first)
+ */
+class ProjectIndex {
+
+    // Variables.
+    private final HashMap<String, Variable> variables;
+    private final HashMap<String, Method> methods;
+    private final HashSet<String> duplicateVariables, duplicateMethods;
+
+    /**
+     * Creates the index of the given files.
+     *
+     * @param files the GlobalBlocks of the files, after their global scopes have been read.
+     */
+    ProjectIndex(List<GlobalBlock> files) {
+        variables = new HashMap<>();
+        methods = new HashMap<>();
+        duplicateVariables = new HashSet<>();
+        duplicateMethods = new HashSet<>();
+        for (GlobalBlock file : files) {
+            for (Variable variable : file.getVariables())
+                add(variables, duplicateVariables, variable.getName(), variable);
+            for (Method method : file.getMethods())
+                add(methods, duplicateMethods, method.getName(), method);
+        }
+    }
+
+    // Adds a definition of the given name, or marks the name as a duplicate if it's already defined.
+    private static <T> void add(HashMap<String, T> definitions, HashSet<String> duplicates, String name,
+                                T definition) {
+        if (definitions.putIfAbsent(name, definition) != null)
+            duplicates.add(name);
+    }
+
+    /**
+     * Returns true if more than one file defines a global variable with the given name.
+     *
+     * @param name the name of the variable.
+     * @return true if the name is a duplicate.
+     */
+    boolean isDuplicateVariable(String name) {
+        return duplicateVariables.contains(name);
+    }
+
+    /**
+     * Returns true if more than one file defines a method with the given name.
+     *
+     * @param name the name of the method.
+     * @return true if the name is a duplicate.
+     */
+    boolean isDuplicateMethod(String name) {
+        return duplicateMethods.contains(name);
+    }
+
+    /**
+     * Returns the global variable with the given name, or null if no file defines it.
+     * (The first file that defines it, if more than one does)
+     *
+     * @param name the name of the variable.
+     * @return the variable with the given name.
+     */
+    Variable getVariable(String name) {
+        return variables.get(name);
+    }
+
+    /**
+     * Returns the method with the given name, or null if no file defines it.
+     * (The first file that defines it, if more than one does)
+     *
+     * @param name the name of the method.
+     * @return the method with the given name.
+     */
+    Method getMethod(String name) {
+        return methods.get(name);
+    }
+}
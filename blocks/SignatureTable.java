@@ -0,0 +1,383 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.ResultCache;
+import oop.ex6.main.Type;
+import oop.ex6.main.Variable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The global scope of an SJava file in a compact binary form: every global variable with its
+ * type, finality and assignment, and every method with its parameter types, its definition
+ * line and the byte offset that the definition starts at in the file. A file whose global
+ * scope has been saved can be checked again without interpreting its global declarations, by
+ * reading only the body of every method from its offset. (See CheckOptions.signatures)
+ * The table of a file is named after the file's path, and holds the hash of the lines of its
+ * global scope (the global declarations and the method definitions, but not the bodies), so
+ * it's still used after an edit of only the bodies of the methods, once the methods are moved
+ * to where they now start. Tables are read by memory-mapping them, and written atomically.
+ * Every table starts with the version of its format and of the checker, and a table of
+ * another version is ignored, as if it didn't exist.
+ * The layout is: magic, format version, checker version, the hash of the global scope, the
+ * number of variables and then every variable (name, type, flags), the number of methods and
+ * then every method (name, parameter types, line, column, offset, definition). Numbers are
+ * big-endian and strings are UTF-8, preceded by their length in bytes.
+ */
+public class SignatureTable {
+
+    // Constants.
+    /**
+     * The suffix of the names of table files.
+     */
+    public static final String SUFFIX = ".sig";
+    private static final int MAGIC = 0x534a5354, FORMAT_VERSION = 2, FINAL_FLAG = 1, ASSIGNED_FLAG = 2,
+            BUFFER_SIZE = 1 << 13;
+    private static final Type[] TYPES = Type.values();
+    private static final String TEMP_PREFIX = ".", TEMP_SUFFIX = ".tmp";
+
+    // Variables.
+    private String scopeKey;
+    private String[] variableNames, methodNames, definitions;
+    private Type[] variableTypes;
+    private byte[] variableFlags;
+    private Type[][] parameterTypes;
+    private int[] lineNumbers, columns;
+    private long[] offsets;
+
+    // Creates an empty table, whose arrays are created once their lengths are known.
+    private SignatureTable() {
+    }
+
+    /**
+     * Creates the table of the given global scope.
+     *
+     * @param scopeKey      the hash of the lines of the global scope.
+     * @param variables     the global variables.
+     * @param methods       the methods, in the order they were defined.
+     * @param methodOffsets the byte offset of the definition of every method.
+     */
+    SignatureTable(String scopeKey, Collection<Variable> variables, Collection<Method> methods,
+                   Map<Method, Long> methodOffsets) {
+        this.scopeKey = scopeKey;
+        setVariableCount(variables.size());
+        setMethodCount(methods.size());
+        int index = 0;
+        for (Variable variable : variables) {
+            variableNames[index] = variable.getName();
+            variableTypes[index] = variable.getType();
+            variableFlags[index++] = (byte) ((variable.isFinal() ? FINAL_FLAG : 0)
+                    | (variable.isAssigned() ? ASSIGNED_FLAG : 0));
+        }
+        index = 0;
+        for (Method method : methods) {
+            methodNames[index] = method.getName();
+            parameterTypes[index] = method.getParameterTypes();
+            lineNumbers[index] = method.getLineNumber();
+            columns[index] = method.getColumn();
+            definitions[index] = method.getDefinition();
+            offsets[index++] = methodOffsets.get(method);
+        }
+    }
+
+    /**
+     * Returns the name of the table file of the given SJava file, which is the hash of its
+     * absolute path (and the checker version).
+     *
+     * @param file the SJava file.
+     * @return the name of its table file.
+     */
+    public static String fileName(Path file) {
+        return ResultCache.key(file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8))
+                + SUFFIX;
+    }
+
+    /**
+     * Reads the table in the given file.
+     *
+     * @param file the file to read.
+     * @return the table, or null if the file doesn't exist or was written by another version.
+     * @throws IOException if the file exists but can't be read.
+     */
+    public static SignatureTable read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || !readString(buffer).equals(ResultCache.CHECKER_VERSION))
+                return null;
+            SignatureTable table = new SignatureTable();
+            table.scopeKey = readString(buffer);
+            table.setVariableCount(readLength(buffer));
+            for (int i = 0; i < table.variableNames.length; i++) {
+                table.variableNames[i] = readString(buffer);
+                table.variableTypes[i] = TYPES[buffer.get()];
+                table.variableFlags[i] = buffer.get();
+            }
+            table.setMethodCount(readLength(buffer));
+            for (int i = 0; i < table.methodNames.length; i++) {
+                table.methodNames[i] = readString(buffer);
+                Type[] types = new Type[readLength(buffer)];
+                for (int j = 0; j < types.length; j++)
+                    types[j] = TYPES[buffer.get()];
+                table.parameterTypes[i] = types;
+                table.lineNumbers[i] = buffer.getInt();
+                table.columns[i] = buffer.getInt();
+                table.offsets[i] = buffer.getLong();
+                table.definitions[i] = readString(buffer);
+            }
+            return table;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null; // Cut short, or written by an incompatible checker.
+        }
+    }
+
+    /**
+     * Writes the table to the given file, replacing it atomically, so that readers never see
+     * a partly written table. Failing to write the table is silently ignored, since the file
+     * can always be checked without it.
+     *
+     * @param file the file to write the table to. (Its directory must exist)
+     */
+    public void write(Path file) {
+        try {
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), TEMP_PREFIX, TEMP_SUFFIX);
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    write(out);
+                }
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // The file is checked without a table next time.
+        }
+    }
+
+    // Creates the arrays of the given number of variables.
+    private void setVariableCount(int count) {
+        variableNames = new String[count];
+        variableTypes = new Type[count];
+        variableFlags = new byte[count];
+    }
+
+    // Creates the arrays of the given number of methods.
+    private void setMethodCount(int count) {
+        methodNames = new String[count];
+        parameterTypes = new Type[count][];
+        lineNumbers = new int[count];
+        columns = new int[count];
+        offsets = new long[count];
+        definitions = new String[count];
+    }
+
+    // Writes the table to the given stream.
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, ResultCache.CHECKER_VERSION);
+        writeString(out, scopeKey);
+        out.writeInt(variableNames.length);
+        for (int i = 0; i < variableNames.length; i++) {
+            writeString(out, variableNames[i]);
+            out.writeByte(variableTypes[i].ordinal());
+            out.writeByte(variableFlags[i]);
+        }
+        out.writeInt(methodNames.length);
+        for (int i = 0; i < methodNames.length; i++) {
+            writeString(out, methodNames[i]);
+            out.writeInt(parameterTypes[i].length);
+            for (Type type : parameterTypes[i])
+                out.writeByte(type.ordinal());
+            out.writeInt(lineNumbers[i]);
+            out.writeInt(columns[i]);
+            out.writeLong(offsets[i]);
+            writeString(out, definitions[i]);
+        }
+    }
+
+    // Writes a string as its length in bytes, followed by its UTF-8 bytes.
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /*
+     * Reads the length of a string or an array. Every item takes at least a byte, so a length
+     * that is negative or longer than the rest of the table can only be read from a broken table.
+     */
+    private static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new BufferUnderflowException();
+        return length;
+    }
+
+    // Reads a string that writeString wrote.
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the hash of the lines of the global scope that the table was made of.
+     *
+     * @return the hash of the global scope.
+     */
+    public String getScopeKey() {
+        return scopeKey;
+    }
+
+    /**
+     * Moves the method with the given index to where its definition now starts in the file.
+     * (After the bodies of the methods before it were edited)
+     *
+     * @param index      the index of the method.
+     * @param lineNumber the number of the line that now defines the method.
+     * @param column     the column that the definition now starts at.
+     * @param offset     the byte offset that the definition now starts at.
+     */
+    void moveMethod(int index, int lineNumber, int column, long offset) {
+        lineNumbers[index] = lineNumber;
+        columns[index] = column;
+        offsets[index] = offset;
+    }
+
+    /**
+     * Returns the number of global variables.
+     *
+     * @return the number of global variables.
+     */
+    public int variableCount() {
+        return variableNames.length;
+    }
+
+    /**
+     * Returns the name of the global variable with the given index.
+     *
+     * @param index the index of the variable. (In no particular order)
+     * @return the name of the variable.
+     */
+    public String getVariableName(int index) {
+        return variableNames[index];
+    }
+
+    /**
+     * Returns the type of the global variable with the given index.
+     *
+     * @param index the index of the variable.
+     * @return the type of the variable.
+     */
+    public Type getVariableType(int index) {
+        return variableTypes[index];
+    }
+
+    /**
+     * Returns true if the global variable with the given index is final.
+     *
+     * @param index the index of the variable.
+     * @return true if the variable is final.
+     */
+    public boolean isFinal(int index) {
+        return (variableFlags[index] & FINAL_FLAG) != 0;
+    }
+
+    /**
+     * Returns true if the global variable with the given index is assigned where it's declared.
+     *
+     * @param index the index of the variable.
+     * @return true if the variable is assigned.
+     */
+    public boolean isAssigned(int index) {
+        return (variableFlags[index] & ASSIGNED_FLAG) != 0;
+    }
+
+    /**
+     * Returns the number of methods.
+     *
+     * @return the number of methods.
+     */
+    public int methodCount() {
+        return methodNames.length;
+    }
+
+    /**
+     * Returns the name of the method with the given index.
+     *
+     * @param index the index of the method. (In the order they were defined)
+     * @return the name of the method.
+     */
+    public String getMethodName(int index) {
+        return methodNames[index];
+    }
+
+    /**
+     * Returns the parameter types of the method with the given index.
+     *
+     * @param index the index of the method.
+     * @return a copy of the parameter types, in order.
+     */
+    public Type[] getParameterTypes(int index) {
+        return parameterTypes[index].clone();
+    }
+
+    /**
+     * Returns the number of the line that defines the method with the given index.
+     *
+     * @param index the index of the method.
+     * @return the line number (starting from 1).
+     */
+    public int getLineNumber(int index) {
+        return lineNumbers[index];
+    }
+
+    /**
+     * Returns the column that the definition of the method with the given index starts at.
+     *
+     * @param index the index of the method.
+     * @return the column (starting from 1).
+     */
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Returns the byte offset in the file of the line that defines the method with the given index.
+     *
+     * @param index the index of the method.
+     * @return the byte offset of the definition.
+     */
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the (trimmed) line that defines the method with the given index.
+     *
+     * @param index the index of the method.
+     * @return the definition line.
+     */
+    public String getDefinition(int index) {
+        return definitions[index];
+    }
+}
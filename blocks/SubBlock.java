@@ -1,53 +1,42 @@
 package oop.ex6.blocks;
 
+import oop.ex6.main.LineScanner;
 import oop.ex6.main.SJavaFormatException;
+import oop.ex6.main.SJavaFormatException.Kind;
 import oop.ex6.main.Variable;
 
-import java.util.Iterator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Represents an if or while block in an SJava file.
+ * Only the definition of the block is checked here. Its lines are read by the method that
+ * contains it, in a scope that the method opens for the block. (See LocalBlock.readLines)
  */
-class SubBlock extends LocalBlock {
+class SubBlock {
 
     // Constants.
     private static final int VALUE_GROUP = 1;
-    private static final String SUB_BLOCK_REGEX = "(?:if|while)\\s*\\(([^)]*)\\)\\s*\\{",
-            SPLIT_REGEX = "\\s*(&&|\\|\\|)\\s*";
-    private static final Pattern SUB_BLOCK_PATTERN = Pattern.compile(SUB_BLOCK_REGEX);
 
     /**
-     * Creates a new SubBlock.
+     * Checks the definition line of a SubBlock.
      *
-     * @param line     the definition line of this SubBlock.
-     * @param iterator an iterator that contains the lines of this SubBlock.
-     * @param parent   the parent Block of this SubBlock.
-     * @param global   the GlobalBlock of this file.
+     * @param line  the definition line of the SubBlock.
+     * @param scope the block that contains the SubBlock, in which its condition is checked.
      */
-    SubBlock(String line, Iterator<String> iterator, Block parent,
-             GlobalBlock global) throws SJavaFormatException {
-        super(parent, global);
-        Matcher matcher = SUB_BLOCK_PATTERN.matcher(line);
-        if (!matcher.matches())
-            throw new SJavaFormatException();
-        parseCondition(matcher.group(VALUE_GROUP).trim());
-        readSubBlock(iterator);
-    }
-
-    // Reads the lines of this SubBlock.
-    private void readSubBlock(Iterator<String> iterator) throws SJavaFormatException {
-        String line;
-        while (!(line = iterator.next()).equals(BLOCK_END))
-            readLine(line, iterator);
+    static void checkDefinition(CharSequence line, Block scope) throws SJavaFormatException {
+        LineScanner scanner = new LineScanner();
+        if (!scanner.matchSubBlock(line))
+            throw new SJavaFormatException(Kind.INVALID_LINE);
+        try {
+            parseCondition(scanner.group(VALUE_GROUP).trim(), scope);
+        } catch (SJavaFormatException e) {
+            throw e.atOffset(scanner.start(VALUE_GROUP));
+        }
     }
 
     // Interprets the SubBlock's condition.
-    private void parseCondition(String conditionLine) throws SJavaFormatException {
+    private static void parseCondition(String conditionLine, Block scope) throws SJavaFormatException {
         if (!conditionLine.isEmpty())
-            for (String condition : conditionLine.split(SPLIT_REGEX))
+            for (String condition : LineScanner.splitCondition(conditionLine))
                 if (Variable.notBoolean(condition))
-                    Variable.equalsBoolean(getVariableType(condition));
+                    Variable.equalsBoolean(scope.getVariableType(condition));
     }
 }
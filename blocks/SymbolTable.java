@@ -0,0 +1,186 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.Variable;
+
+import java.util.Arrays;
+
+/**
+ * The local variables of the method that is being checked, in all of its nested scopes.
+ * Every name is interned to an int id once, and each id points straight to the innermost
+ * variable with that name, so a lookup costs the same at any nesting depth. Declarations
+ * are written to an undo log, and leaving a scope restores the variables that its
+ * declarations hid. Entering and leaving scopes doesn't allocate anything, so a single
+ * table can be reused for all the methods that a thread checks.
+ */
+class SymbolTable {
+
+    // Constants.
+    private static final int INITIAL_NAMES = 64, INITIAL_SCOPES = 16, NO_ID = -1;
+
+    // Variables.
+    private String[] names;
+    private int[] ids;
+    private int nameCount;
+    private Variable[] bindings;
+    private int[] bindingDepths;
+    private int[] undoIds, undoDepths;
+    private Variable[] undoBindings;
+    private int undoSize;
+    private int[] scopeStarts;
+    private int depth, scopesEntered;
+
+    /**
+     * Creates a new empty table, in which only the method's own scope is open.
+     */
+    SymbolTable() {
+        names = new String[INITIAL_NAMES * 2];
+        ids = new int[INITIAL_NAMES * 2];
+        bindings = new Variable[INITIAL_NAMES];
+        bindingDepths = new int[INITIAL_NAMES];
+        undoIds = new int[INITIAL_NAMES];
+        undoDepths = new int[INITIAL_NAMES];
+        undoBindings = new Variable[INITIAL_NAMES];
+        scopeStarts = new int[INITIAL_SCOPES];
+    }
+
+    /**
+     * Declares the given variable in the current scope.
+     *
+     * @param variable the variable to declare.
+     * @return false if a variable with the same name was already declared in the current scope.
+     */
+    boolean declare(Variable variable) {
+        int id = intern(variable.getName());
+        if (bindings[id] != null && bindingDepths[id] == depth)
+            return false; // Variable name conflict.
+        if (undoSize == undoIds.length) {
+            undoIds = Arrays.copyOf(undoIds, undoSize * 2);
+            undoDepths = Arrays.copyOf(undoDepths, undoSize * 2);
+            undoBindings = Arrays.copyOf(undoBindings, undoSize * 2);
+        }
+        undoIds[undoSize] = id;
+        undoDepths[undoSize] = bindingDepths[id];
+        undoBindings[undoSize++] = bindings[id];
+        bindings[id] = variable;
+        bindingDepths[id] = depth;
+        return true;
+    }
+
+    /**
+     * Returns the innermost visible variable with the given name, or null if there isn't one.
+     *
+     * @param name the name of the variable.
+     * @return the variable with the given name.
+     */
+    Variable lookup(String name) {
+        int id = find(name);
+        return id == NO_ID ? null : bindings[id];
+    }
+
+    /**
+     * Opens a new scope inside the current one.
+     */
+    void enterScope() {
+        if (depth + 1 == scopeStarts.length)
+            scopeStarts = Arrays.copyOf(scopeStarts, scopeStarts.length * 2);
+        scopeStarts[++depth] = undoSize;
+        scopesEntered++;
+    }
+
+    /**
+     * Closes the current scope, forgetting the variables that were declared in it.
+     */
+    void exitScope() {
+        undo(scopeStarts[depth--]);
+    }
+
+    /**
+     * Returns the number of scopes that are open inside the method's own scope.
+     *
+     * @return the current depth.
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * Closes all the scopes and forgets all the variables, so the table can be used
+     * for another method. (The interned names are kept)
+     */
+    void reset() {
+        undo(0);
+        depth = 0;
+        scopesEntered = 0;
+    }
+
+    /**
+     * Returns the number of scopes that were opened since the table was last reset.
+     *
+     * @return the number of scopes entered.
+     */
+    int scopesEntered() {
+        return scopesEntered;
+    }
+
+    /**
+     * Returns the number of names that were interned since the table was created.
+     *
+     * @return the number of interned names.
+     */
+    int nameCount() {
+        return nameCount;
+    }
+
+    // Restores the bindings that were changed after the given point of the undo log.
+    private void undo(int start) {
+        while (undoSize > start) {
+            int id = undoIds[--undoSize];
+            bindings[id] = undoBindings[undoSize];
+            bindingDepths[id] = undoDepths[undoSize];
+            undoBindings[undoSize] = null;
+        }
+    }
+
+    // Returns the id of the given name, or NO_ID if it has never been interned.
+    private int find(String name) {
+        int mask = names.length - 1;
+        for (int slot = name.hashCode() & mask; names[slot] != null; slot = (slot + 1) & mask)
+            if (names[slot].equals(name))
+                return ids[slot];
+        return NO_ID;
+    }
+
+    // Returns the id of the given name, giving it a new id if it has never been interned.
+    private int intern(String name) {
+        int mask = names.length - 1, slot = name.hashCode() & mask;
+        for (; names[slot] != null; slot = (slot + 1) & mask)
+            if (names[slot].equals(name))
+                return ids[slot];
+        names[slot] = name;
+        ids[slot] = nameCount;
+        if (nameCount == bindings.length) {
+            bindings = Arrays.copyOf(bindings, nameCount * 2);
+            bindingDepths = Arrays.copyOf(bindingDepths, nameCount * 2);
+        }
+        if (++nameCount * 2 > names.length)
+            rehash();
+        return nameCount - 1;
+    }
+
+    // Doubles the capacity of the interned names, so that at most half of the slots are used.
+    private void rehash() {
+        String[] oldNames = names;
+        int[] oldIds = ids;
+        names = new String[oldNames.length * 2];
+        ids = new int[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++)
+            if (oldNames[i] != null) {
+                int slot = oldNames[i].hashCode() & mask;
+                while (names[slot] != null)
+                    slot = (slot + 1) & mask;
+                names[slot] = oldNames[i];
+                ids[slot] = oldIds[i];
+            }
+    }
+}
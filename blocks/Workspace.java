@@ -0,0 +1,73 @@
+package oop.ex6.blocks;
+
+import oop.ex6.main.Diagnostics;
+
+/**
+ * The buffers that checking a file fills: the lines of its methods, the symbol table of the
+ * method that is being checked and the errors that were found. Reusing a workspace for many
+ * checks saves growing the same buffers again for every file. Buffers that grew very large
+ * are dropped instead of being reused, so a single huge file isn't held in memory forever.
+ * Isn't thread-safe, each thread that checks files needs its own workspace.
+ */
+public class Workspace {
+
+    // Constants.
+    private static final int MAX_RETAINED_CHARS = 1 << 22, MAX_RETAINED_NAMES = 1 << 14;
+
+    // Variables.
+    private LineBuffer lines;
+    private SymbolTable symbols;
+    private Diagnostics diagnostics;
+
+    /**
+     * Creates a new workspace with empty buffers.
+     */
+    public Workspace() {
+        lines = new LineBuffer();
+        symbols = new SymbolTable();
+        diagnostics = new Diagnostics();
+    }
+
+    /**
+     * Returns the errors that the last check found, if it recovered from errors.
+     * (Emptied when the next check that recovers from errors starts)
+     *
+     * @return the errors of the last check.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Returns the empty line buffer, for the lines of the next file.
+     *
+     * @return the line buffer.
+     */
+    LineBuffer lines() {
+        if (lines.capacity() > MAX_RETAINED_CHARS)
+            lines = new LineBuffer();
+        lines.clear();
+        return lines;
+    }
+
+    /**
+     * Returns the symbol table, for the methods of the next file.
+     *
+     * @return the symbol table.
+     */
+    SymbolTable symbols() {
+        if (symbols.nameCount() > MAX_RETAINED_NAMES)
+            symbols = new SymbolTable();
+        return symbols;
+    }
+
+    /**
+     * Returns the emptied errors buffer, for the errors of the next file.
+     *
+     * @return the errors buffer.
+     */
+    Diagnostics diagnostics() {
+        diagnostics.clear();
+        return diagnostics;
+    }
+}
@@ -0,0 +1,281 @@
+package oop.ex6.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Checks many SJava files concurrently and reports a result code for each file.
+ * Arguments can be files, directories (walked lazily) or argument files ("@file")
+ * that list one path per line. The results can also be written by a ResultWriter instead,
+ * with the errors and the check time of every file.
+ * Archives (.zip, .jar, .tar, .tar.gz and .tgz) are checked without extracting them: every
+ * file in the archive is read straight into the checker, and reported as "archive!/path".
+ * The files of a zip or jar archive are read concurrently, each through its own stream.
+ * A tar archive can only be read in order, so its files are read one after the other, and
+ * each is checked concurrently with reading the ones after it. (The metadata of a jar
+ * archive, under META-INF, isn't checked) A file in an archive that is larger than 64 MB
+ * is reported as an IO error without being read, so that no entry (such as a broken or
+ * malicious size) can exhaust the memory of the whole batch.
+ */
+public class BatchChecker {
+
+    /*
+     * Opens the stream of a file in an archive.
+     */
+    private interface Entry {
+        InputStream open() throws IOException;
+    }
+
+    // Constants.
+    /**
+     * The separator between the path of an archive and the path of a file in it.
+     */
+    static final String ENTRY_SEPARATOR = "!/";
+    private static final String ARGUMENT_FILE = "@", SEPARATOR = " ", METADATA = "META-INF/";
+    private static final String[] ZIP_SUFFIXES = {".zip", ".jar"}, TAR_SUFFIXES = {".tar"},
+            TAR_GZ_SUFFIXES = {".tar.gz", ".tgz"};
+    private static final int TASKS_PER_THREAD = 4, BUFFER_SIZE = 1 << 16, MAX_ENTRY_SIZE = 1 << 26;
+
+    // Variables.
+    private ForkJoinPool pool;
+    private Semaphore inFlight;
+    private int maxInFlight;
+    private AtomicInteger aggregate;
+    private ResultWriter writer;
+
+    /**
+     * Creates a new batch checker that uses every available core.
+     */
+    public BatchChecker() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new batch checker that uses every available core, and writes the results
+     * with the given writer.
+     *
+     * @param writer the writer to write the results with.
+     */
+    public BatchChecker(ResultWriter writer) {
+        this(Runtime.getRuntime().availableProcessors());
+        this.writer = writer;
+    }
+
+    /**
+     * Creates a new batch checker.
+     *
+     * @param parallelism the number of files to check at the same time.
+     */
+    public BatchChecker(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+        maxInFlight = parallelism * TASKS_PER_THREAD;
+        inFlight = new Semaphore(maxInFlight);
+        aggregate = new AtomicInteger(Sjavac.LEGAL_CODE);
+    }
+
+    /**
+     * Returns true if the given arguments should be checked in batch mode.
+     *
+     * @param args the program arguments.
+     * @return true if there's more than one argument, or the argument is a directory
+     * or an argument file.
+     */
+    public static boolean isBatch(String[] args) {
+        return args.length > 1 || args[0].startsWith(ARGUMENT_FILE) || Files.isDirectory(Paths.get(args[0]))
+                || isArchive(args[0]);
+    }
+
+    /**
+     * Returns true if the given file is an archive whose files are checked, by its name.
+     *
+     * @param file the path of the file.
+     * @return true if the file is a zip, jar, tar, tar.gz or tgz archive.
+     */
+    public static boolean isArchive(String file) {
+        return hasSuffix(file, ZIP_SUFFIXES) || hasSuffix(file, TAR_SUFFIXES) || hasSuffix(file, TAR_GZ_SUFFIXES);
+    }
+
+    /**
+     * Checks all the files that the given arguments refer to and prints a result line
+     * ("code path") for each file as soon as it has been checked.
+     * Only a bounded number of files are queued at any time, no matter how many are given.
+     *
+     * @param args the files, directories and argument files to check.
+     * @return the aggregate result code (the most severe code of all the files).
+     */
+    public int run(String[] args) throws InterruptedException {
+        try {
+            for (String arg : args)
+                if (arg.startsWith(ARGUMENT_FILE))
+                    submitArgumentFile(arg.substring(ARGUMENT_FILE.length()));
+                else
+                    submitPath(Paths.get(arg));
+            inFlight.acquire(maxInFlight); // Waits for all the files to be checked.
+        } finally {
+            pool.shutdown();
+        }
+        return aggregate.get();
+    }
+
+    // Submits every path that is listed in the given argument file.
+    private void submitArgumentFile(String argumentFile) throws InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(argumentFile), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                if (!(line = line.trim()).isEmpty())
+                    submitPath(Paths.get(line));
+        } catch (IOException | UncheckedIOException e) {
+            report(argumentFile, Sjavac.IO_ERROR);
+        }
+    }
+
+    // Submits the given file, or every regular file under it if it's a directory.
+    private void submitPath(Path path) throws InterruptedException {
+        if (!Files.isDirectory(path)) {
+            submitFileOrArchive(path);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext())
+                submitFileOrArchive(iterator.next());
+        } catch (IOException | UncheckedIOException e) {
+            report(path.toString(), Sjavac.IO_ERROR);
+        }
+    }
+
+    // Submits the given file, or every file in it if it's an archive.
+    private void submitFileOrArchive(Path file) throws InterruptedException {
+        String name = file.toString();
+        if (hasSuffix(name, ZIP_SUFFIXES))
+            submitZip(file);
+        else if (hasSuffix(name, TAR_SUFFIXES))
+            submitTar(file, false);
+        else if (hasSuffix(name, TAR_GZ_SUFFIXES))
+            submitTar(file, true);
+        else
+            submitFile(file);
+    }
+
+    /*
+     * Submits every file in the given zip archive, each read through its own stream, and waits
+     * for all of them to be checked before the archive is closed.
+     */
+    private void submitZip(Path archive) throws InterruptedException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            try {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || entry.getName().startsWith(METADATA))
+                        continue;
+                    String name = archive + ENTRY_SEPARATOR + entry.getName();
+                    if (entry.getSize() > MAX_ENTRY_SIZE)
+                        report(name, Sjavac.IO_ERROR);
+                    else
+                        submitEntry(name, () -> zip.getInputStream(entry));
+                }
+            } finally {
+                inFlight.acquire(maxInFlight); // The streams of the entries are closed with the archive.
+                inFlight.release(maxInFlight);
+            }
+        } catch (IOException | IllegalStateException e) {
+            report(archive.toString(), Sjavac.IO_ERROR);
+        }
+    }
+
+    /*
+     * Reads every file in the given tar archive (decompressing it if asked to) one after the
+     * other, and submits each once it has been read. Only the files that are queued are held
+     * in memory, and files that are too large are reported without being read. A broken archive
+     * is reported after the files that were read before the break.
+     */
+    private void submitTar(Path archive, boolean compressed) throws InterruptedException {
+        try (InputStream file = Files.newInputStream(archive);
+             TarReader tar = new TarReader(compressed ? new GZIPInputStream(file, BUFFER_SIZE)
+                     : new BufferedInputStream(file, BUFFER_SIZE))) {
+            String path;
+            while ((path = tar.next()) != null) {
+                byte[] content = tar.read(MAX_ENTRY_SIZE);
+                if (content == null)
+                    report(archive + ENTRY_SEPARATOR + path, Sjavac.IO_ERROR);
+                else
+                    submitEntry(archive + ENTRY_SEPARATOR + path, () -> new ByteArrayInputStream(content));
+            }
+        } catch (IOException e) {
+            report(archive.toString(), Sjavac.IO_ERROR);
+        }
+    }
+
+    // Waits until there's room in the queue and then submits the file in an archive to the pool.
+    private void submitEntry(String name, Entry entry) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            try (InputStream in = entry.open()) {
+                int code = Sjavac.check(name, in, writer);
+                if (writer == null)
+                    report(name, code);
+                else
+                    aggregate.accumulateAndGet(code, Math::max);
+            } catch (IOException | RuntimeException | StackOverflowError e) {
+                report(name, Sjavac.IO_ERROR); // Fails only this file. (See submitFile)
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // Returns true if the given name ends with any of the given suffixes. (Ignoring case)
+    private static boolean hasSuffix(String name, String[] suffixes) {
+        for (String suffix : suffixes)
+            if (name.regionMatches(true, name.length() - suffix.length(), suffix, 0, suffix.length()))
+                return true;
+        return false;
+    }
+
+    // Waits until there's room in the queue and then submits the file to the pool.
+    private void submitFile(Path file) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            String name = file.toString();
+            try {
+                if (writer == null)
+                    report(name, Sjavac.check(name));
+                else
+                    aggregate.accumulateAndGet(Sjavac.check(name, writer), Math::max);
+            } catch (RuntimeException | StackOverflowError e) {
+                // A file that the checker fails on (or that nests too deeply) can't be checked, but
+                // it must still be reported, and the other files must still be checked.
+                report(name, Sjavac.IO_ERROR);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // Prints (or writes) the result of a single file and updates the aggregate result.
+    private void report(String file, int code) {
+        aggregate.accumulateAndGet(code, Math::max);
+        if (writer == null)
+            System.out.println(code + SEPARATOR + file);
+        else
+            writer.write(file, code, null, 0);
+    }
+}
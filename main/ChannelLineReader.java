@@ -0,0 +1,231 @@
+package oop.ex6.main;
+
+import oop.ex6.main.SJavaFormatException.Kind;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of an SJava file from a file channel, starting at any offset, and filters
+ * them the same way as FilteredTrimmedReader. Only a small buffer (or the longest line) is held
+ * in memory, and every line remembers the byte offset it starts at, so it can be read again later.
+ * Reads don't change the position of the channel, so several readers can share one channel.
+ */
+public class ChannelLineReader implements LineSource {
+
+    // Constants.
+    private static final int BUFFER_SIZE = 1 << 16, BYTE_MASK = 0xff, LINE_BREAK_LENGTH = 2;
+    private static final byte COMMENT = '/', LINE_FEED = '\n', CARRIAGE_RETURN = '\r', SPACE = ' ';
+
+    // Variables.
+    private FileChannel channel;
+    private Charset charset;
+    private MessageDigest digest;
+    private byte[] bytes;
+    private int start, limit, lineNumber, column, linesReturned;
+    private long bufferOffset, lineOffset;
+    private boolean endOfFile;
+
+    /**
+     * Creates a new reader that starts at the given offset of the channel.
+     *
+     * @param channel the channel to read from. (Isn't closed by the reader)
+     * @param offset  the byte offset of the first line to read.
+     */
+    public ChannelLineReader(FileChannel channel, long offset) {
+        this.channel = channel;
+        charset = Charset.defaultCharset();
+        bytes = new byte[BUFFER_SIZE];
+        bufferOffset = offset;
+        lineOffset = offset;
+    }
+
+    /**
+     * Returns true if lines can be split and decoded one at a time, which is the case
+     * when the default charset encodes ASCII characters (and only them) as single bytes.
+     *
+     * @return true if the default charset is supported.
+     */
+    public static boolean isSupported() {
+        return MappedLineReader.isAsciiCompatible(Charset.defaultCharset());
+    }
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param file the file to open.
+     * @return a channel of the file.
+     * @throws FileNotFoundException if the file can't be opened for reading.
+     */
+    public static FileChannel openChannel(Path file) throws FileNotFoundException {
+        if (Files.isDirectory(file))
+            throw new FileNotFoundException(file.toString());
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new FileNotFoundException(file.toString());
+        }
+    }
+
+    /**
+     * Reads a line of text, filtering single-line comments and empty lines (including lines
+     * that only have whitespaces), the same way as FilteredTrimmedReader.
+     *
+     * @return the trimmed line, or null if the end of the file has been reached.
+     */
+    @Override
+    public String readLine() throws IOException, SJavaFormatException {
+        while (start < limit || fill()) {
+            int length = 0;
+            while (start + length < limit || fill()) {
+                byte b = bytes[start + length];
+                if (b == LINE_FEED || b == CARRIAGE_RETURN)
+                    break;
+                length++;
+            }
+            int terminator = terminatorLength(length);
+            int lineStart = start, lineEnd = start + length, firstByte = lineStart;
+            lineOffset = bufferOffset + lineStart;
+            start = lineEnd + terminator;
+            lineNumber++;
+            if (isComment(lineStart, lineEnd))
+                continue;
+            while (lineStart < lineEnd && (bytes[lineStart] & BYTE_MASK) <= SPACE)
+                lineStart++;
+            while (lineEnd > lineStart && (bytes[lineEnd - 1] & BYTE_MASK) <= SPACE)
+                lineEnd--;
+            if (lineStart == lineEnd)
+                continue;
+            column = lineStart - firstByte + 1; // Whitespaces are always single bytes.
+            if (isComment(lineStart, lineEnd))
+                throw new SJavaFormatException(Kind.INDENTED_COMMENT).atLine(lineNumber, column); // Detects any comments that had spaces preceding it.
+            linesReturned++;
+            return new String(bytes, lineStart, lineEnd - lineStart, charset);
+        }
+        return null;
+    }
+
+    /**
+     * Hashes every byte with the given digest as it's read from the channel, so the digest
+     * is given exactly the bytes that the lines are read from. (The reader must not be moved
+     * with seek then, or the bytes wouldn't be read in order)
+     *
+     * @param digest the digest to give the bytes to.
+     */
+    public void digest(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * Reads the rest of the channel only to give it to the digest, after the lines have
+     * stopped being read. (No more lines can be read afterwards)
+     */
+    public void digestRest() throws IOException {
+        while (fill())
+            start = limit;
+    }
+
+    /**
+     * Moves the reader to the given offset, so that the next line is read from there.
+     * (If the offset is already in the buffer, nothing is read again)
+     *
+     * @param offset     the byte offset of the next line to read.
+     * @param lineNumber the line number of the next line to read.
+     */
+    public void seek(long offset, int lineNumber) {
+        this.lineNumber = lineNumber - 1;
+        if (offset >= bufferOffset && offset <= bufferOffset + limit)
+            start = (int) (offset - bufferOffset);
+        else {
+            bufferOffset = offset;
+            start = 0;
+            limit = 0;
+            endOfFile = false;
+        }
+        lineOffset = offset;
+    }
+
+    /**
+     * Returns the byte offset of the last line that was read. (Reading from this offset again
+     * returns the same line first)
+     *
+     * @return the offset of the last line that was read.
+     */
+    public long lineOffset() {
+        return lineOffset;
+    }
+
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public int column() {
+        return column;
+    }
+
+    @Override
+    public int linesReturned() {
+        return linesReturned;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, the channel belongs to whoever opened it.
+    }
+
+    /*
+     * Moves the unread bytes to the start of the buffer and reads more bytes after them.
+     * (The buffer grows only when a single line doesn't fit in it)
+     * Returns false if the end of the file has been reached.
+     */
+    private boolean fill() throws IOException {
+        if (endOfFile)
+            return false;
+        if (start > 0) {
+            System.arraycopy(bytes, start, bytes, 0, limit - start);
+            bufferOffset += start;
+            limit -= start;
+            start = 0;
+        }
+        if (limit == bytes.length)
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        int read = channel.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit), bufferOffset + limit);
+        if (read < 0) {
+            endOfFile = true;
+            return false;
+        }
+        if (digest != null)
+            digest.update(bytes, limit, read);
+        limit += read;
+        return true;
+    }
+
+    /*
+     * Returns the length of the terminator of the line that starts at the start of the buffer
+     * and has the given length: 0 at the end of the file, 2 for "\r\n" and 1 otherwise.
+     * (May read more of the file to find out)
+     */
+    private int terminatorLength(int length) throws IOException {
+        if (start + length == limit)
+            return 0;
+        if (bytes[start + length] == CARRIAGE_RETURN && (start + length + 1 < limit || fill())
+                && bytes[start + length + 1] == LINE_FEED)
+            return LINE_BREAK_LENGTH;
+        return 1;
+    }
+
+    // Returns true if the given part of the buffer starts with "//".
+    private boolean isComment(int start, int end) {
+        return end - start > 1 && bytes[start] == COMMENT && bytes[start + 1] == COMMENT;
+    }
+}
@@ -0,0 +1,124 @@
+package oop.ex6.main;
+
+import oop.ex6.main.SJavaFormatException.Kind;
+
+/**
+ * The result of checking SJava source code with a Checker: its result code and the format
+ * errors that were found, sorted by their position. (A single error, unless the checker
+ * recovers from errors) Results never change once they're created, so they can be shared.
+ */
+public class CheckResult {
+
+    // Constants.
+    /**
+     * The result of legal source code.
+     */
+    static final CheckResult LEGAL = new CheckResult(new Diagnostics());
+
+    // Variables.
+    private Diagnostics errors;
+
+    // Creates a new result with the given errors. (The buffer is kept, not copied)
+    private CheckResult(Diagnostics errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Returns the result of a check that found the given errors.
+     *
+     * @param errors the errors that were found. (Copied, so the buffer can be reused)
+     * @return the result of the check.
+     */
+    static CheckResult of(Diagnostics errors) {
+        return errors.isEmpty() ? LEGAL : new CheckResult(errors.copy());
+    }
+
+    /**
+     * Returns the result of a check that stopped at the given error.
+     *
+     * @param error the error that was found.
+     * @return the result of the check.
+     */
+    static CheckResult of(SJavaFormatException error) {
+        Diagnostics errors = new Diagnostics();
+        errors.add(error);
+        return new CheckResult(errors);
+    }
+
+    /**
+     * Returns true if no errors were found.
+     *
+     * @return true if the source code is legal.
+     */
+    public boolean isLegal() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Returns the result code of the check, the same code that Sjavac prints for a file:
+     * 0 if the source code is legal and 1 if it isn't.
+     *
+     * @return the result code.
+     */
+    public int getCode() {
+        return errors.isEmpty() ? Sjavac.LEGAL_CODE : Sjavac.ILLEGAL_CODE;
+    }
+
+    /**
+     * Returns the number of errors that were found.
+     *
+     * @return the number of errors.
+     */
+    public int getErrorCount() {
+        return errors.size();
+    }
+
+    /**
+     * Returns the kind of the error with the given index.
+     *
+     * @param index the index of the error.
+     * @return the kind of the error.
+     */
+    public Kind getKind(int index) {
+        return errors.getKind(index);
+    }
+
+    /**
+     * Returns the line of the error with the given index.
+     *
+     * @param index the index of the error.
+     * @return the line number (starting from 1).
+     */
+    public int getLine(int index) {
+        return errors.getLine(index);
+    }
+
+    /**
+     * Returns the column of the error with the given index.
+     *
+     * @param index the index of the error.
+     * @return the column (starting from 1).
+     */
+    public int getColumn(int index) {
+        return errors.getColumn(index);
+    }
+
+    /**
+     * Returns a message that describes the error with the given index.
+     *
+     * @param index the index of the error.
+     * @return the message.
+     */
+    public String getMessage(int index) {
+        return errors.getMessage(index);
+    }
+
+    /**
+     * Returns the errors that were found. (The buffer is shared, so it must not be changed)
+     *
+     * @return the errors.
+     */
+    Diagnostics getErrors() {
+        return errors;
+    }
+}
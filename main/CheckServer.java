@@ -0,0 +1,234 @@
+package oop.ex6.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntSupplier;
+
+/**
+ * A long-lived checker that answers check requests, so that the JVM and all the
+ * static patterns stay warm between checks.
+ * Requests are line based, and each one starts with an id chosen by the client:
+ * "id PATH path" checks a file and "id SOURCE n" checks the n lines that follow it.
+ * Every request is answered with "id code" as soon as its check is done, and a check that
+ * fails in any other way is answered as an IO error ("id 2"), so the client isn't left waiting.
+ * Inline sources are checked in memory by a single Checker, shared by all the threads.
+ * Connections are read by a fixed number of threads, and further connections wait to be
+ * accepted until one of them is closed.
+ */
+public class CheckServer {
+
+    // Constants.
+    private static final String PATH = "PATH", SOURCE = "SOURCE", SEPARATOR = " ",
+            NEW_LINE = "\n", CLIENT_ID = "0";
+    private static final int REQUEST_PARTS = 3, ID = 0, KIND = 1, ARGUMENT = 2, CODE = 1,
+            MAX_CONNECTIONS = 64;
+
+    // Variables.
+    private ForkJoinPool pool;
+    private ExecutorService connections;
+    private Semaphore freeConnections;
+    private Checker checker;
+
+    /**
+     * Creates a new server that checks requests on every available core.
+     */
+    public CheckServer() {
+        pool = new ForkJoinPool();
+        connections = Executors.newFixedThreadPool(MAX_CONNECTIONS);
+        freeConnections = new Semaphore(MAX_CONNECTIONS);
+        checker = new Checker();
+    }
+
+    /**
+     * Sends a single file to the server that listens on the given socket and
+     * returns the file's result code.
+     *
+     * @param socket the Unix domain socket that the server listens on.
+     * @param file   the file to check.
+     * @return the result code of the file.
+     */
+    public static int request(Path socket, Path file) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            Writer out = new OutputStreamWriter(channelOutput(channel), StandardCharsets.UTF_8);
+            out.write(CLIENT_ID + SEPARATOR + PATH + SEPARATOR + file.toAbsolutePath() + NEW_LINE);
+            out.flush();
+            String response = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(channel), StandardCharsets.UTF_8)).readLine();
+            if (response == null)
+                throw new IOException();
+            return Integer.parseInt(response.split(SEPARATOR)[CODE]);
+        }
+    }
+
+    /**
+     * Listens on the given Unix domain socket and serves every connection
+     * until the process is stopped. (Or until this thread is interrupted)
+     *
+     * @param socket the path of the socket to create.
+     */
+    public void listen(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            while (true) {
+                freeConnections.acquire(); // Waits for a free thread before accepting.
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (IOException e) {
+                    freeConnections.release();
+                    throw e;
+                }
+                connections.execute(() -> serveConnection(channel));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Reads requests from the given input until it ends, and writes a response for
+     * each of them to the given output. Requests are checked concurrently, so
+     * responses may be written in a different order than the requests.
+     *
+     * @param in  the stream to read requests from.
+     * @param out the stream to write responses to.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Phaser pending = new Phaser(1);
+        String line;
+        while ((line = reader.readLine()) != null)
+            if (!line.isEmpty())
+                handleRequest(line, reader, writer, pending);
+        pending.arriveAndAwaitAdvance(); // Waits for all the responses to be written.
+    }
+
+    // Serves a single socket connection, and then frees its thread for the next one.
+    private void serveConnection(SocketChannel channel) {
+        try (SocketChannel connection = channel) {
+            serve(Channels.newInputStream(connection), channelOutput(connection));
+        } catch (IOException e) {
+            // The client has disconnected, so there's no one to answer.
+        } finally {
+            freeConnections.release();
+        }
+    }
+
+    // Parses a single request and submits its check to the pool.
+    private void handleRequest(String line, BufferedReader reader, Writer writer, Phaser pending)
+            throws IOException {
+        String[] request = line.split(SEPARATOR, REQUEST_PARTS);
+        String id = request[ID];
+        if (request.length != REQUEST_PARTS) {
+            respond(writer, id, Sjavac.IO_ERROR);
+            return;
+        }
+        if (request[KIND].equals(PATH)) {
+            String file = request[ARGUMENT];
+            submit(() -> Sjavac.check(file), writer, id, pending);
+        } else if (request[KIND].equals(SOURCE)) {
+            String source = readSource(request[ARGUMENT], reader);
+            if (source == null)
+                respond(writer, id, Sjavac.IO_ERROR);
+            else
+                submit(() -> checker.check(source).getCode(), writer, id, pending);
+        } else
+            respond(writer, id, Sjavac.IO_ERROR);
+    }
+
+    /*
+     * Reads the lines of an inline source request.
+     * Returns null if the line count isn't valid or the input ended too soon.
+     */
+    private static String readSource(String lineCount, BufferedReader reader) throws IOException {
+        int lines;
+        try {
+            lines = Integer.parseInt(lineCount.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            String line = reader.readLine();
+            if (line == null)
+                return null;
+            source.append(line).append(NEW_LINE);
+        }
+        return source.toString();
+    }
+
+    /*
+     * Runs the given check on the pool and keeps track of it until it's answered. A check that
+     * fails (such as reading a mapped file that was truncated) is answered as an IO error.
+     */
+    private void submit(IntSupplier check, Writer writer, String id, Phaser pending) {
+        pending.register();
+        pool.execute(() -> {
+            int code = Sjavac.IO_ERROR;
+            try {
+                code = check.getAsInt();
+            } catch (RuntimeException | Error e) {
+                // Answered as an IO error.
+            } finally {
+                respond(writer, id, code);
+                pending.arriveAndDeregister();
+            }
+        });
+    }
+
+    // Writes a single response.
+    private static void respond(Writer writer, String id, int code) {
+        synchronized (writer) {
+            try {
+                writer.write(id + SEPARATOR + code + NEW_LINE);
+                writer.flush();
+            } catch (IOException e) {
+                // The client has disconnected, so there's no one to answer.
+            }
+        }
+    }
+
+    /*
+     * Returns a stream that writes straight to the channel. (Unlike the streams of
+     * java.nio.channels.Channels, it doesn't block while another thread is reading)
+     */
+    private static OutputStream channelOutput(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        };
+    }
+}
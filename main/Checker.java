@@ -0,0 +1,121 @@
+package oop.ex6.main;
+
+import oop.ex6.blocks.CheckOptions;
+import oop.ex6.blocks.GlobalBlock;
+import oop.ex6.blocks.Workspace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Checks SJava source code that is already in memory, or read from a stream, for embedding
+ * the checker in other programs without writing files. A checker can be shared by any
+ * number of threads: every thread checks with its own Workspace (and its own buffer for
+ * reading streams), which is reused for all the checks of that thread.
+ */
+public class Checker {
+
+    /*
+     * The buffers of a single thread.
+     */
+    private static class ThreadState {
+        private Workspace workspace = new Workspace();
+        private byte[] input = new byte[INITIAL_INPUT];
+    }
+
+    // Constants.
+    private static final int INITIAL_INPUT = 1 << 13, MAX_RETAINED_INPUT = 1 << 22;
+
+    // Variables.
+    private Charset charset;
+    private boolean recover;
+    private ThreadLocal<ThreadState> states;
+
+    /**
+     * Creates a new checker that stops at the first error, and decodes bytes with the
+     * default charset. (The same way files are read)
+     */
+    public Checker() {
+        this(Charset.defaultCharset(), false);
+    }
+
+    /**
+     * Creates a new checker.
+     *
+     * @param charset the charset to decode bytes with.
+     * @param recover whether to recover from format errors and report all of them,
+     *                instead of stopping at the first one.
+     */
+    public Checker(Charset charset, boolean recover) {
+        this.charset = charset;
+        this.recover = recover;
+        states = ThreadLocal.withInitial(ThreadState::new);
+    }
+
+    /**
+     * Checks the given source code. (The source isn't copied, so it must not change
+     * during the check)
+     *
+     * @param source the source code to check.
+     * @return the result of the check.
+     */
+    public CheckResult check(CharSequence source) {
+        return check(new MappedLineReader(source));
+    }
+
+    /**
+     * Checks the given encoded source code.
+     *
+     * @param source the source code to check.
+     * @return the result of the check.
+     */
+    public CheckResult check(byte[] source) {
+        return check(ByteBuffer.wrap(source));
+    }
+
+    /**
+     * Checks the remaining bytes of the given buffer. (The position of the buffer isn't changed)
+     *
+     * @param source the source code to check.
+     * @return the result of the check.
+     */
+    public CheckResult check(ByteBuffer source) {
+        return check(new MappedLineReader(source, charset));
+    }
+
+    /**
+     * Reads the given stream until it ends and checks what was read.
+     * (The stream isn't closed)
+     *
+     * @param in the stream to read the source code from.
+     * @return the result of the check.
+     * @throws IOException if the stream can't be read.
+     */
+    public CheckResult check(InputStream in) throws IOException {
+        ThreadState state = states.get();
+        byte[] input = state.input;
+        int length = 0, read;
+        while ((read = in.read(input, length, input.length - length)) >= 0)
+            if ((length += read) == input.length)
+                input = Arrays.copyOf(input, input.length * 2);
+        state.input = input.length > MAX_RETAINED_INPUT ? new byte[INITIAL_INPUT] : input;
+        return check(ByteBuffer.wrap(input, 0, length));
+    }
+
+    // Checks the lines of the given source with the workspace of the current thread.
+    private CheckResult check(LineSource source) {
+        Workspace workspace = states.get().workspace;
+        try {
+            new GlobalBlock(new CheckOptions().source(source).workspace(workspace, recover));
+        } catch (SJavaFormatException e) {
+            return CheckResult.of(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Sources in memory are never read from a device.
+        }
+        return recover ? CheckResult.of(workspace.getDiagnostics()) : CheckResult.LEGAL;
+    }
+}
@@ -0,0 +1,167 @@
+package oop.ex6.main;
+
+import oop.ex6.main.SJavaFormatException.Kind;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of the format errors that were found in an SJava file, for checking
+ * a whole file instead of stopping at its first error. Every error is packed into a single
+ * long (line, then column, then kind), so adding an error doesn't allocate anything once the
+ * buffer has grown, and sorting the errors by their position is a plain sort of the longs.
+ * Isn't thread-safe, each thread that checks methods collects its errors in its own buffer.
+ * The column of an error is always the column of the first character of its statement,
+ * since the positions inside a statement aren't kept by the line scanner.
+ */
+public class Diagnostics {
+
+    // Constants.
+    private static final int INITIAL_CAPACITY = 16, LINE_SHIFT = 32, COLUMN_SHIFT = 8,
+            COLUMN_MASK = (1 << 24) - 1, KIND_MASK = 0xff;
+    private static final Kind[] KINDS = Kind.values();
+
+    // Variables.
+    private long[] entries;
+    private int size;
+
+    /**
+     * Creates a new empty buffer.
+     */
+    public Diagnostics() {
+        entries = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds the problem that the given exception describes, at the position it carries.
+     *
+     * @param e the exception to add.
+     */
+    public void add(SJavaFormatException e) {
+        add(e.getKind(), e.getLine(), e.getColumn());
+    }
+
+    /**
+     * Adds a problem of the given kind at the given position.
+     *
+     * @param kind   the kind of the problem.
+     * @param line   the line number (starting from 1).
+     * @param column the column (starting from 1).
+     */
+    public void add(Kind kind, int line, int column) {
+        if (size == entries.length)
+            entries = Arrays.copyOf(entries, Math.max(size * 2, INITIAL_CAPACITY)); // A copy may be empty.
+        entries[size++] = (long) line << LINE_SHIFT | (long) Math.min(column, COLUMN_MASK) << COLUMN_SHIFT
+                | kind.ordinal();
+    }
+
+    /**
+     * Adds all the problems of the given buffer, after the ones that are already in this buffer.
+     *
+     * @param other the buffer to add the problems of.
+     */
+    public void addAll(Diagnostics other) {
+        if (size + other.size > entries.length)
+            entries = Arrays.copyOf(entries, Math.max(size + other.size, size * 2));
+        System.arraycopy(other.entries, 0, entries, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Adds all the problems of the given buffer, moved by the given number of lines.
+     *
+     * @param other     the buffer to add the problems of.
+     * @param lineShift the number of lines to add to the line of every problem.
+     */
+    public void addAll(Diagnostics other, int lineShift) {
+        int start = size;
+        addAll(other);
+        long shift = (long) lineShift << LINE_SHIFT;
+        for (int i = start; i < size; i++)
+            entries[i] += shift;
+    }
+
+    /**
+     * Returns a copy of the buffer that holds only its problems, without its spare capacity.
+     *
+     * @return a copy of the buffer.
+     */
+    public Diagnostics copy() {
+        Diagnostics copy = new Diagnostics();
+        copy.entries = Arrays.copyOf(entries, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Sorts the problems by their position in the file.
+     */
+    public void sort() {
+        Arrays.sort(entries, 0, size);
+    }
+
+    /**
+     * Returns the number of problems in the buffer.
+     *
+     * @return the number of problems.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if no problems were found.
+     *
+     * @return true if the buffer is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the kind of the problem with the given index.
+     *
+     * @param index the index of the problem.
+     * @return the kind of the problem.
+     */
+    public Kind getKind(int index) {
+        return KINDS[(int) entries[index] & KIND_MASK];
+    }
+
+    /**
+     * Returns the line of the problem with the given index.
+     *
+     * @param index the index of the problem.
+     * @return the line number (starting from 1).
+     */
+    public int getLine(int index) {
+        return (int) (entries[index] >>> LINE_SHIFT);
+    }
+
+    /**
+     * Returns the column of the problem with the given index.
+     *
+     * @param index the index of the problem.
+     * @return the column (starting from 1).
+     */
+    public int getColumn(int index) {
+        return (int) (entries[index] >>> COLUMN_SHIFT) & COLUMN_MASK;
+    }
+
+    /**
+     * Returns a message that describes the problem with the given index, in the same
+     * format as the message of an SJavaFormatException.
+     *
+     * @param index the index of the problem.
+     * @return the message.
+     */
+    public String getMessage(int index) {
+        return SJavaFormatException.format(getKind(index), getLine(index), getColumn(index));
+    }
+
+    /**
+     * Removes all the problems from the buffer, but keeps its capacity so it can be reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
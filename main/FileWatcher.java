@@ -0,0 +1,198 @@
+package oop.ex6.main;
+
+import oop.ex6.blocks.IncrementalChecker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches directories (and every directory under them) and checks the files that are created
+ * or changed in them, printing a result line ("code path") for each file as soon as it has
+ * been checked. Bursts of events, such as an editor saving through a temporary file or a tool
+ * writing many files at once, are collected until the directories have been quiet for a few
+ * milliseconds, and then every changed file is checked once.
+ * When checking incrementally, every file keeps an IncrementalChecker, so only the methods
+ * of a file that may have a different result are checked again when it changes.
+ * (This keeps the lines of all the watched files in memory, until they are deleted)
+ * A file that fails to be checked in any other way, such as a file that is truncated while it's
+ * read, is reported as an IO error, and the watcher keeps running.
+ */
+public class FileWatcher {
+
+    // Constants.
+    private static final long QUIET_MILLIS = 15;
+    private static final String SEPARATOR = " ";
+
+    // Variables.
+    private WatchService service;
+    private HashMap<WatchKey, Path> directories;
+    private List<Path> roots;
+    private ForkJoinPool pool;
+    private ConcurrentHashMap<Path, IncrementalChecker> checkers;
+
+    /**
+     * Creates a new watcher of the given directories, that checks files on every available core.
+     *
+     * @param roots       the directories to watch.
+     * @param incremental whether to check the files incrementally, instead of as in batch mode.
+     * @throws IOException if the directories can't be watched.
+     */
+    public FileWatcher(List<Path> roots, boolean incremental) throws IOException {
+        this.roots = roots;
+        if (incremental)
+            checkers = new ConcurrentHashMap<>();
+        service = FileSystems.getDefault().newWatchService();
+        directories = new HashMap<>();
+        pool = new ForkJoinPool();
+        for (Path root : roots)
+            register(root);
+    }
+
+    /**
+     * Checks all the files in the watched directories once, and then checks the files that
+     * change until the process is stopped.
+     */
+    public void watch() throws IOException, InterruptedException {
+        Set<Path> changed = new LinkedHashSet<>();
+        for (Path root : roots)
+            addFiles(root, changed);
+        while (true) {
+            checkAll(changed);
+            changed.clear();
+            WatchKey key = service.take();
+            do
+                collect(key, changed);
+            while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null);
+        }
+    }
+
+    // Watches the given directory and every directory under it.
+    private void register(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> iterator = paths.filter(Files::isDirectory).iterator();
+            while (iterator.hasNext()) {
+                Path directory = iterator.next();
+                directories.put(directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), directory);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * Adds the files that the events of the given key refer to. New directories are watched
+     * too, and the files that were already written into them are added. Deleted files (and the
+     * files under deleted directories) are forgotten. If events were lost, every file is added.
+     */
+    private void collect(WatchKey key, Set<Path> changed) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                for (Path root : roots)
+                    addFiles(root, changed);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE)
+                forget(path, changed);
+            else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path))
+                addDirectory(path, changed);
+            else
+                changed.add(path);
+        }
+        if (!key.reset()) // The directory no longer exists.
+            directories.remove(key);
+    }
+
+    // Watches a new directory and adds the files that were already written into it.
+    private void addDirectory(Path directory, Set<Path> changed) {
+        try {
+            register(directory);
+            addFiles(directory, changed);
+        } catch (IOException e) {
+            // The directory was deleted again before it could be watched.
+        }
+    }
+
+    // Forgets the given deleted path and every file under it, if it was a directory.
+    private void forget(Path path, Set<Path> changed) {
+        changed.removeIf(file -> file.startsWith(path));
+        if (checkers != null)
+            checkers.keySet().removeIf(file -> file.startsWith(path));
+    }
+
+    // Adds every regular file under the given directory.
+    private static void addFiles(Path directory, Collection<Path> files) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Iterator<Path> iterator = paths.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext())
+                files.add(iterator.next());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * Checks the given files concurrently and waits for all of them. (Files that were deleted
+     * are skipped, and their earlier versions are forgotten)
+     */
+    private void checkAll(Collection<Path> files) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Path file : files)
+            if (Files.isRegularFile(file))
+                tasks.add(pool.submit(() -> report(file)));
+            else if (checkers != null)
+                checkers.remove(file);
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+    }
+
+    /*
+     * Checks a single file and prints its result. Any other failure of the check is reported as
+     * an IO error, so it doesn't stop the watcher: such as the InternalError of reading a mapped
+     * file that was truncated. (The file's earlier version is forgotten then)
+     */
+    private void report(Path file) {
+        int code;
+        try {
+            code = checkers == null ? Sjavac.check(file.toString()) : checkIncrementally(file);
+        } catch (RuntimeException | Error e) {
+            code = Sjavac.IO_ERROR;
+            if (checkers != null)
+                checkers.remove(file);
+        }
+        System.out.println(code + SEPARATOR + file);
+    }
+
+    // Checks a single file with its incremental checker and returns its result code.
+    private int checkIncrementally(Path file) {
+        try {
+            checkers.computeIfAbsent(file, path -> new IncrementalChecker()).check(file.toString(), null);
+            return Sjavac.LEGAL_CODE;
+        } catch (SJavaFormatException e) {
+            return Sjavac.ILLEGAL_CODE;
+        } catch (IOException e) {
+            return Sjavac.IO_ERROR;
+        }
+    }
+}
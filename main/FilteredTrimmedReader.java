@@ -1,5 +1,7 @@
 package oop.ex6.main;
 
+import oop.ex6.main.SJavaFormatException.Kind;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
@@ -8,13 +10,15 @@ import java.io.Reader;
  * A Reader decorator that gets a buffered reader that filters single-line comments
  * and whitespace-only lines and returns trimmed lines.
  */
-public class FilteredTrimmedReader extends Reader {
+public class FilteredTrimmedReader extends Reader implements LineSource {
 
     // Constants.
     private static final String COMMENT = "//";
+    private static final char SPACE = ' ';
 
     // Variables.
     private BufferedReader in;
+    private int lineNumber, column, linesReturned;
 
     /**
      * Creates a new reader decorator.
@@ -35,16 +39,44 @@ public class FilteredTrimmedReader extends Reader {
      * any line-termination characters, or null if the end of the
      * stream has been reached without reading any characters
      */
+    @Override
     public String readLine() throws IOException, SJavaFormatException {
         String line;
         do {
-            line = in.readLine();
-        } while (line != null && (line.startsWith(COMMENT) || (line = line.trim()).isEmpty()));
-        if (line != null && line.startsWith(COMMENT))
-            throw new SJavaFormatException();// Detects any comments that had spaces preceding it.
+            if ((line = in.readLine()) != null)
+                lineNumber++;
+        } while (line != null && (line.startsWith(COMMENT) || (line = trim(line)).isEmpty()));
+        if (line != null && line.startsWith(COMMENT)) // Detects any comments that had spaces preceding it.
+            throw new SJavaFormatException(Kind.INDENTED_COMMENT).atLine(lineNumber, column);
+        if (line != null)
+            linesReturned++;
         return line;
     }
 
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public int column() {
+        return column;
+    }
+
+    @Override
+    public int linesReturned() {
+        return linesReturned;
+    }
+
+    // Trims the given line, and remembers the column that the trimmed line starts at.
+    private String trim(String line) {
+        int start = 0;
+        while (start < line.length() && line.charAt(start) <= SPACE)
+            start++;
+        column = start + 1;
+        return line.trim();
+    }
+
     @Override
     public int read(char[] cbuf, int off, int len) throws IOException {
         return in.read(cbuf, off, len);
@@ -0,0 +1,580 @@
+package oop.ex6.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classifies and parses lines of an SJava file in a single linear scan.
+ * Every match method accepts exactly the strings that the regular expression in its
+ * documentation matches, and numbers its groups the same way, so a scanner can be used
+ * the same way as a Matcher. (group(n) returns null if group n didn't participate)
+ * Lists of variables and parameters are matched one item at a time, like Matcher.find,
+ * so a list of any length is scanned once with no recursion.
+ */
+public class LineScanner {
+
+    // Constants.
+    private static final String FINAL = "final", VOID = "void", IF = "if", WHILE = "while",
+            RETURN = "return", TRUE = "true", FALSE = "false";
+    private static final String[] TYPES = {"int", "String", "boolean", "double", "char"};
+    private static final char SEMICOLON = ';', COMMA = ',', ASSIGNMENT = '=', OPEN = '(', CLOSE = ')',
+            BLOCK = '{', MINUS = '-', DOT = '.', QUOTE = '"', APOSTROPHE = '\'', AND = '&', OR = '|';
+    private static final int MAX_GROUPS = 7, NOT_FOUND = -1, CHAR_LENGTH = 3;
+    private static final String[] NO_PARTS = new String[0];
+
+    // Variables.
+    private CharSequence line;
+    private int[] starts, ends;
+    private int position;
+    private boolean hasNext;
+
+    /**
+     * Creates a new scanner.
+     */
+    public LineScanner() {
+        starts = new int[MAX_GROUPS];
+        ends = new int[MAX_GROUPS];
+    }
+
+    /**
+     * Returns the given group of the last match, or null if it didn't participate.
+     *
+     * @param group the number of the group.
+     * @return the group's string.
+     */
+    public String group(int group) {
+        return starts[group] == NOT_FOUND ? null : line.subSequence(starts[group], ends[group]).toString();
+    }
+
+    /**
+     * Returns the index in the line of the first character of the given group of the last
+     * match that isn't a whitespace, or -1 if the group didn't participate.
+     *
+     * @param group the number of the group.
+     * @return the index that the group's trimmed string starts at.
+     */
+    public int start(int group) {
+        return starts[group] == NOT_FOUND ? NOT_FOUND : Math.min(skipWhitespace(starts[group]), ends[group]);
+    }
+
+    /**
+     * Returns the index in the line of the variable or parameter that is matched next.
+     * (After nextVariable or nextParameter fail, it's the index of the one that didn't match)
+     *
+     * @return the index of the next item in the list.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Matches the start of a variable definition line:
+     * (final\s+)?(int|String|boolean|double|char)\s+
+     * The variables that follow are then matched one at a time with nextVariable.
+     *
+     * @param line the line to match.
+     * @return true if the line starts with a definition.
+     */
+    public boolean matchDefinition(CharSequence line) {
+        reset(line);
+        position = matchLineStart(0, 1);
+        hasNext = position != NOT_FOUND;
+        return hasNext;
+    }
+
+    /**
+     * Matches the next variable of the definition that matchDefinition started:
+     * ([a-zA-Z_]\w*)(\s*=\s*([^;,]+))?(?:,\s*|;$)
+     * (Groups 3, 4 and 5. The groups of the definition's start are kept)
+     * Like the expression that declarations were matched with before lists were scanned,
+     * the separator must come right after the name or the value: whitespaces before it are
+     * part of the value (and then make it invalid), and aren't allowed after a name.
+     *
+     * @return true if the next variable matches. hasNext then tells if another variable follows.
+     */
+    public boolean nextVariable() {
+        clearGroups(3, 5);
+        int length = line.length(), start = position;
+        if (!hasNext || start == length || !isNameStart(line.charAt(start)))
+            return false;
+        int end = skipWord(start + 1), next = end, assignment = skipWhitespace(end);
+        setGroup(3, start, end);
+        if (assignment < length && line.charAt(assignment) == ASSIGNMENT) {
+            int value = skipWhitespace(assignment + 1);
+            next = value;
+            while (next < length && line.charAt(next) != SEMICOLON && line.charAt(next) != COMMA)
+                next++;
+            if (value == next) { // Only a single whitespace can be given back to ([^;,]+).
+                if (value - 1 == assignment)
+                    return false;
+                value--;
+            }
+            setGroup(4, end, next);
+            setGroup(5, value, next);
+        }
+        return matchSeparator(next, true);
+    }
+
+    /**
+     * Starts matching a list of method parameters, which are then matched
+     * one at a time with nextParameter.
+     *
+     * @param line the parameters to match.
+     */
+    public void matchParameters(CharSequence line) {
+        reset(line);
+        position = 0;
+        hasNext = true;
+    }
+
+    /**
+     * Matches the next parameter of the list that matchParameters started:
+     * (final\s+)?(int|String|boolean|double|char)\s+([a-zA-Z_]\w*)\s*(?:,\s*|$)
+     *
+     * @return true if the next parameter matches. hasNext then tells if another parameter follows.
+     */
+    public boolean nextParameter() {
+        clearGroups(1, 3);
+        if (!hasNext)
+            return false;
+        int length = line.length(), start = matchLineStart(position, 1);
+        if (start == NOT_FOUND || start == length || !isNameStart(line.charAt(start)))
+            return false;
+        int end = skipWord(start + 1);
+        setGroup(3, start, end);
+        return matchSeparator(skipWhitespace(end), false);
+    }
+
+    /**
+     * Returns true if the last variable or parameter that was matched is followed by another one.
+     *
+     * @return true if there's another item in the list.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * Matches a method definition line:
+     * void\s+([a-zA-Z]\w*)\s*\(([^)]*)\)\s*\{
+     *
+     * @param line the line to match.
+     * @return true if the whole line matches.
+     */
+    public boolean matchMethod(CharSequence line) {
+        reset(line);
+        if (!startsWith(line, VOID, 0))
+            return false;
+        int start = skipWhitespace(VOID.length());
+        return start != VOID.length() && matchParenthesized(start, 1, BLOCK);
+    }
+
+    /**
+     * Matches an if or while line:
+     * (?:if|while)\s*\(([^)]*)\)\s*\{
+     *
+     * @param line the line to match.
+     * @return true if the whole line matches.
+     */
+    public boolean matchSubBlock(CharSequence line) {
+        reset(line);
+        int start;
+        if (startsWith(line, IF, 0))
+            start = IF.length();
+        else if (startsWith(line, WHILE, 0))
+            start = WHILE.length();
+        else
+            return false;
+        return matchArguments(start, 1, BLOCK);
+    }
+
+    /**
+     * Matches a method call line:
+     * ([a-zA-Z]\w*)\s*\(([^)]*)\)\s*;
+     *
+     * @param line the line to match.
+     * @return true if the whole line matches.
+     */
+    public boolean matchCall(CharSequence line) {
+        reset(line);
+        return matchParenthesized(0, 1, SEMICOLON);
+    }
+
+    /**
+     * Matches an assignment line:
+     * ([a-zA-Z_]\w*)\s*=\s*([^;]+)\s*;
+     *
+     * @param line the line to match.
+     * @return true if the whole line matches.
+     */
+    public boolean matchAssignment(CharSequence line) {
+        reset(line);
+        int length = line.length();
+        if (length == 0 || !isNameStart(line.charAt(0)))
+            return false;
+        int end = skipWord(1), assignment = skipWhitespace(end);
+        if (assignment == length || line.charAt(assignment) != ASSIGNMENT)
+            return false;
+        int value = skipWhitespace(assignment + 1), semicolon = indexOf(line, SEMICOLON, value);
+        if (semicolon != length - 1)
+            return false;
+        if (value == semicolon) { // Only a single whitespace can be given back to ([^;]+).
+            if (value - 1 == assignment)
+                return false;
+            value--;
+        }
+        setGroup(1, 0, end);
+        setGroup(2, value, semicolon);
+        return true;
+    }
+
+    /**
+     * Returns true if the line is a return statement:
+     * return\s*;
+     *
+     * @param line the line to check.
+     * @return true if the whole line matches.
+     */
+    public static boolean isReturn(CharSequence line) {
+        return startsWith(line, RETURN, 0) && isLastChar(line, skipWhitespace(line, RETURN.length()), SEMICOLON);
+    }
+
+    /**
+     * Returns true if the line contains an assignment sign.
+     *
+     * @param line the line to check.
+     * @return true if the line contains '='.
+     */
+    public static boolean containsAssignment(CharSequence line) {
+        return indexOf(line, ASSIGNMENT, 0) != NOT_FOUND;
+    }
+
+    /**
+     * Returns true if the line looks like a variable definition:
+     * (?:final\s+)?(?:int|String|boolean|double|char)[^;]+;
+     *
+     * @param line the line to check.
+     * @return true if the whole line matches.
+     */
+    public static boolean isDefinition(CharSequence line) {
+        int start = 0;
+        if (startsWithFinal(line, 0))
+            start = skipWhitespace(line, FINAL.length());
+        int end = matchType(line, start);
+        return end != NOT_FOUND && end < line.length() - 1
+                && indexOf(line, SEMICOLON, end) == line.length() - 1;
+    }
+
+    /**
+     * Returns true if the value is a name: [a-zA-Z_]\w*
+     *
+     * @param value the value to check.
+     * @return true if the whole value matches.
+     */
+    public static boolean isName(String value) {
+        if (value.isEmpty() || !isNameStart(value.charAt(0)))
+            return false;
+        for (int i = 1; i < value.length(); i++)
+            if (!isWordChar(value.charAt(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns true if the value is an int literal: -?\d++
+     *
+     * @param value the value to check.
+     * @return true if the whole value matches.
+     */
+    public static boolean isInt(String value) {
+        int end = skipDigits(value, skipMinus(value));
+        return end == value.length();
+    }
+
+    /**
+     * Returns true if the value is a double literal: -?\d++(\.\d++)?
+     *
+     * @param value the value to check.
+     * @return true if the whole value matches.
+     */
+    public static boolean isDouble(String value) {
+        int end = skipDigits(value, skipMinus(value));
+        if (end == NOT_FOUND || end == value.length())
+            return end != NOT_FOUND;
+        return value.charAt(end) == DOT && skipDigits(value, end + 1) == value.length();
+    }
+
+    /**
+     * Returns true if the value is a String literal: "[^"]*+"
+     *
+     * @param value the value to check.
+     * @return true if the whole value matches.
+     */
+    public static boolean isString(String value) {
+        int last = value.length() - 1;
+        return last > 0 && value.charAt(0) == QUOTE && value.indexOf(QUOTE, 1) == last;
+    }
+
+    /**
+     * Returns true if the value is a char literal: '[^']'
+     * (The character is a single code point, so it may take two chars of the value)
+     *
+     * @param value the value to check.
+     * @return true if the whole value matches.
+     */
+    public static boolean isChar(String value) {
+        if (value.length() < CHAR_LENGTH || value.charAt(0) != APOSTROPHE || value.charAt(1) == APOSTROPHE)
+            return false;
+        int end = 1 + Character.charCount(value.codePointAt(1));
+        return value.length() == end + 1 && value.charAt(end) == APOSTROPHE;
+    }
+
+    /**
+     * Returns true if the value is a boolean literal: false|true|-?\d++(\.\d++)?
+     *
+     * @param value the value to check.
+     * @return true if the whole value matches.
+     */
+    public static boolean isBoolean(String value) {
+        return value.equals(FALSE) || value.equals(TRUE) || isDouble(value);
+    }
+
+    /**
+     * Splits method call arguments the same way as values.split(",\\s*").
+     *
+     * @param values the arguments to split.
+     * @return the split arguments.
+     */
+    public static String[] splitArguments(String values) {
+        List<String> parts = new ArrayList<>();
+        int start = 0, comma;
+        while ((comma = values.indexOf(COMMA, start)) != NOT_FOUND) {
+            parts.add(values.substring(start, comma));
+            start = skipWhitespace(values, comma + 1);
+        }
+        if (parts.isEmpty())
+            return new String[]{values};
+        parts.add(values.substring(start));
+        return withoutTrailingEmpty(parts);
+    }
+
+    /**
+     * Splits a condition the same way as condition.split("\\s*(&&|\\|\\|)\\s*").
+     *
+     * @param condition the condition to split.
+     * @return the split conditions.
+     */
+    public static String[] splitCondition(String condition) {
+        List<String> parts = new ArrayList<>();
+        // A match starts at the run of whitespaces that precedes the operator.
+        int start = 0, length = condition.length(), whitespace = 0;
+        for (int i = 0; i < length - 1; i++) {
+            char c = condition.charAt(i);
+            if ((c == AND || c == OR) && condition.charAt(i + 1) == c) {
+                parts.add(condition.substring(start, whitespace));
+                whitespace = start = skipWhitespace(condition, i + 2);
+                i = start - 1;
+            } else if (!isWhitespace(c))
+                whitespace = i + 1;
+        }
+        if (parts.isEmpty())
+            return new String[]{condition};
+        parts.add(condition.substring(start));
+        return withoutTrailingEmpty(parts);
+    }
+
+    // Clears the groups of the last match and starts matching the given line.
+    private void reset(CharSequence line) {
+        this.line = line;
+        Arrays.fill(starts, NOT_FOUND);
+        Arrays.fill(ends, NOT_FOUND);
+        hasNext = false;
+    }
+
+    // Clears the groups in the given range (inclusive).
+    private void clearGroups(int first, int last) {
+        Arrays.fill(starts, first, last + 1, NOT_FOUND);
+        Arrays.fill(ends, first, last + 1, NOT_FOUND);
+    }
+
+    // Sets the bounds of the given group.
+    private void setGroup(int group, int start, int end) {
+        starts[group] = start;
+        ends[group] = end;
+    }
+
+    /*
+     * Matches (final\s+)?(int|String|boolean|double|char)\s+ at the given index.
+     * Returns the index after it, or NOT_FOUND if it doesn't match.
+     */
+    private int matchLineStart(int start, int finalGroup) {
+        if (startsWithFinal(line, start)) {
+            int end = skipWhitespace(start + FINAL.length());
+            setGroup(finalGroup, start, end);
+            start = end;
+        }
+        int end = matchType(line, start);
+        if (end == NOT_FOUND)
+            return NOT_FOUND;
+        setGroup(finalGroup + 1, start, end);
+        int next = skipWhitespace(end);
+        return next == end ? NOT_FOUND : next;
+    }
+
+    /*
+     * Matches the separator after an item of a list at the given index: ,\s* before another
+     * item, or the end of the list, which is ;$ if semicolon is true and $ otherwise.
+     * Moves to the next item and sets whether there is one.
+     */
+    private boolean matchSeparator(int index, boolean semicolon) {
+        int length = line.length();
+        hasNext = false;
+        if (index == length)
+            return !semicolon;
+        if (semicolon && line.charAt(index) == SEMICOLON)
+            return index == length - 1;
+        if (line.charAt(index) != COMMA)
+            return false;
+        position = skipWhitespace(index + 1);
+        hasNext = true;
+        return true;
+    }
+
+    /*
+     * Matches ([a-zA-Z]\w*)\s*\(([^)]*)\)\s*X from the given index to the end of the line,
+     * where X is the given last character.
+     */
+    private boolean matchParenthesized(int start, int firstGroup, char last) {
+        if (start == line.length() || !isLetter(line.charAt(start)))
+            return false;
+        int end = skipWord(start + 1);
+        if (!matchArguments(end, firstGroup + 1, last))
+            return false;
+        setGroup(firstGroup, start, end);
+        return true;
+    }
+
+    // Matches \s*\(([^)]*)\)\s*X from the given index to the end of the line.
+    private boolean matchArguments(int start, int group, char last) {
+        int open = skipWhitespace(start);
+        if (open == line.length() || line.charAt(open) != OPEN)
+            return false;
+        int close = indexOf(line, CLOSE, open + 1);
+        if (close == NOT_FOUND || !isLastChar(line, skipWhitespace(close + 1), last))
+            return false;
+        setGroup(group, open + 1, close);
+        return true;
+    }
+
+    // Returns the index of the first non-whitespace character from the given index.
+    private int skipWhitespace(int start) {
+        return skipWhitespace(line, start);
+    }
+
+    // Returns the index of the first non-word character from the given index.
+    private int skipWord(int start) {
+        int length = line.length();
+        while (start < length && isWordChar(line.charAt(start)))
+            start++;
+        return start;
+    }
+
+    // Returns the index of the first non-whitespace character from the given index.
+    private static int skipWhitespace(CharSequence string, int start) {
+        int length = string.length();
+        while (start < length && isWhitespace(string.charAt(start)))
+            start++;
+        return start;
+    }
+
+    // Returns the index after the minus sign at the beginning of the value, if there's one.
+    private static int skipMinus(String value) {
+        return !value.isEmpty() && value.charAt(0) == MINUS ? 1 : 0;
+    }
+
+    /*
+     * Returns the index of the first non-digit character from the given index,
+     * or NOT_FOUND if there are no digits there.
+     */
+    private static int skipDigits(String string, int start) {
+        int end = start, length = string.length();
+        while (end < length && isDigit(string.charAt(end)))
+            end++;
+        return end == start ? NOT_FOUND : end;
+    }
+
+    /*
+     * Returns the index after the type that starts at the given index,
+     * or NOT_FOUND if no type starts there.
+     */
+    private static int matchType(CharSequence string, int start) {
+        for (String type : TYPES)
+            if (startsWith(string, type, start))
+                return start + type.length();
+        return NOT_FOUND;
+    }
+
+    // Returns true if "final" followed by a whitespace appears in the string at the given index.
+    private static boolean startsWithFinal(CharSequence string, int start) {
+        return startsWith(string, FINAL, start) && string.length() > start + FINAL.length()
+                && isWhitespace(string.charAt(start + FINAL.length()));
+    }
+
+    // Returns true if the given index is the last one in the string and holds the given character.
+    private static boolean isLastChar(CharSequence string, int index, char last) {
+        return index == string.length() - 1 && string.charAt(index) == last;
+    }
+
+    // Returns true if the given prefix appears in the string at the given index.
+    private static boolean startsWith(CharSequence string, String prefix, int start) {
+        if (string.length() - start < prefix.length())
+            return false;
+        for (int i = 0; i < prefix.length(); i++)
+            if (string.charAt(start + i) != prefix.charAt(i))
+                return false;
+        return true;
+    }
+
+    // Returns the index of the character from the given index, or NOT_FOUND if it doesn't appear.
+    private static int indexOf(CharSequence string, char c, int start) {
+        int length = string.length();
+        for (int i = start; i < length; i++)
+            if (string.charAt(i) == c)
+                return i;
+        return NOT_FOUND;
+    }
+
+    // Returns the parts of a split without the trailing empty parts, like String.split.
+    private static String[] withoutTrailingEmpty(List<String> parts) {
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty())
+            size--;
+        return size == 0 ? NO_PARTS : parts.subList(0, size).toArray(NO_PARTS);
+    }
+
+    // Returns true if the character matches \s.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Returns true if the character matches [a-zA-Z].
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // Returns true if the character matches [0-9].
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Returns true if the character matches [a-zA-Z_].
+    private static boolean isNameStart(char c) {
+        return isLetter(c) || c == '_';
+    }
+
+    // Returns true if the character matches \w.
+    private static boolean isWordChar(char c) {
+        return isNameStart(c) || isDigit(c);
+    }
+}
@@ -0,0 +1,43 @@
+package oop.ex6.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of the filtered and trimmed lines of an SJava file.
+ * Single-line comments and whitespace-only lines are never returned.
+ */
+public interface LineSource extends Closeable {
+
+    /**
+     * Reads the next line. Throws an SJavaFormatException if the line is a comment
+     * that has whitespaces preceding it.
+     *
+     * @return the trimmed line, or null if the end of the source has been reached.
+     */
+    CharSequence readLine() throws IOException, SJavaFormatException;
+
+    /**
+     * Returns the number of the last line that was read, counting every line of the
+     * source (including the ones that were filtered).
+     *
+     * @return the line number (starting from 1), or 0 if no line has been read yet.
+     */
+    int lineNumber();
+
+    /**
+     * Returns the column that the last line that was read starts at, after its leading
+     * whitespaces. (Every character counts as one column)
+     *
+     * @return the column (starting from 1), or 0 if no line has been read yet.
+     */
+    int column();
+
+    /**
+     * Returns the number of lines that have been returned so far. (The rest of the lines
+     * up to lineNumber were filtered)
+     *
+     * @return the number of lines returned.
+     */
+    int linesReturned();
+}
@@ -0,0 +1,241 @@
+package oop.ex6.main;
+
+import oop.ex6.main.SJavaFormatException.Kind;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Reads the lines of an SJava file from a buffer (usually a memory-mapped file), or from
+ * text that is already in memory, and filters them the same way as FilteredTrimmedReader, but without copying them.
+ * Every line is returned as a trimmed view into the buffer. If the whole buffer is ASCII,
+ * the views read straight from its bytes, otherwise the buffer is decoded once.
+ */
+public class MappedLineReader implements LineSource {
+
+    // Constants.
+    private static final long ASCII_MASK = 0x8080808080808080L;
+    private static final int ASCII_LIMIT = 0x80, BYTE_MASK = 0xff, LINE_BREAK_LENGTH = 2;
+    private static final char COMMENT = '/', LINE_FEED = '\n', CARRIAGE_RETURN = '\r', SPACE = ' ';
+
+    // Variables.
+    private CharSequence text;
+    private int position, lineNumber, column, linesReturned;
+
+    /**
+     * Creates a new reader over the given buffer, decoding it with the default charset
+     * (like FileReader) if it isn't all ASCII.
+     *
+     * @param buffer the content of the file.
+     */
+    public MappedLineReader(ByteBuffer buffer) {
+        this(buffer, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a new reader over the given buffer, decoding it with the given charset
+     * if it isn't all ASCII. (The position of the buffer isn't changed)
+     *
+     * @param buffer  the content of the file.
+     * @param charset the charset of the content.
+     */
+    public MappedLineReader(ByteBuffer buffer, Charset charset) {
+        if (!isAsciiCompatible(charset) || !isAscii(buffer))
+            text = charset.decode(buffer.duplicate());
+        else if (buffer.hasArray()) // Reads the array itself, which is also faster than the buffer.
+            text = new AsciiArraySequence(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining());
+        else
+            text = new AsciiSequence(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Creates a new reader over the given text. (The text isn't copied)
+     *
+     * @param text the content of the file.
+     */
+    public MappedLineReader(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Opens the given file for reading. Files that fit in a single mapping are
+     * memory-mapped, and larger ones are read through a FilteredTrimmedReader.
+     *
+     * @param file the file to read.
+     * @return a source of the file's lines.
+     * @throws FileNotFoundException if the file can't be opened for reading.
+     */
+    public static LineSource open(Path file) throws IOException {
+        try (FileChannel channel = ChannelLineReader.openChannel(file)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                return new FilteredTrimmedReader(new BufferedReader(new FileReader(file.toFile())));
+            return new MappedLineReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Reads a line of text, filtering single-line comments and empty lines (including lines
+     * that only have whitespaces), the same way as FilteredTrimmedReader.
+     *
+     * @return a trimmed view of the line, or null if the end of the buffer has been reached.
+     */
+    @Override
+    public CharSequence readLine() throws SJavaFormatException {
+        int length = text.length();
+        while (position < length) {
+            int lineStart = position, start = lineStart, end = start;
+            while (end < length && text.charAt(end) != LINE_FEED && text.charAt(end) != CARRIAGE_RETURN)
+                end++;
+            position = end + (isLineBreak(end) ? LINE_BREAK_LENGTH : 1);
+            lineNumber++;
+            if (isComment(start, end))
+                continue;
+            while (start < end && text.charAt(start) <= SPACE)
+                start++;
+            while (end > start && text.charAt(end - 1) <= SPACE)
+                end--;
+            if (start == end)
+                continue;
+            column = start - lineStart + 1;
+            if (isComment(start, end))
+                throw new SJavaFormatException(Kind.INDENTED_COMMENT).atLine(lineNumber, column); // Detects any comments that had spaces preceding it.
+            linesReturned++;
+            return text.subSequence(start, end);
+        }
+        return null;
+    }
+
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public int column() {
+        return column;
+    }
+
+    @Override
+    public int linesReturned() {
+        return linesReturned;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, the mapping is released once it's no longer used.
+    }
+
+    // Returns true if the line ends with "\r\n" at the given index, which ends a single line.
+    private boolean isLineBreak(int index) {
+        return index + 1 < text.length() && text.charAt(index) == CARRIAGE_RETURN
+                && text.charAt(index + 1) == LINE_FEED;
+    }
+
+    // Returns true if the given part of the text starts with "//".
+    private boolean isComment(int start, int end) {
+        return end - start > 1 && text.charAt(start) == COMMENT && text.charAt(start + 1) == COMMENT;
+    }
+
+    // Returns true if decoding ASCII bytes with the given charset gives the same characters.
+    static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    // Returns true if all the remaining bytes of the buffer are ASCII. (Checks 8 bytes at a time)
+    private static boolean isAscii(ByteBuffer buffer) {
+        int i = buffer.position(), limit = buffer.limit();
+        for (; i + Long.BYTES <= limit; i += Long.BYTES)
+            if ((buffer.getLong(i) & ASCII_MASK) != 0)
+                return false;
+        for (; i < limit; i++)
+            if ((buffer.get(i) & BYTE_MASK) >= ASCII_LIMIT)
+                return false;
+        return true;
+    }
+
+    /*
+     * A view of ASCII bytes in an array as characters. Sub-sequences are views of the same
+     * array, so nothing is copied until toString is called.
+     */
+    private static class AsciiArraySequence implements CharSequence {
+
+        private byte[] bytes;
+        private int offset, length;
+
+        AsciiArraySequence(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiArraySequence(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /*
+     * A view of ASCII bytes as characters. Sub-sequences are views of the same bytes,
+     * so nothing is copied until toString is called.
+     */
+    private static class AsciiSequence implements CharSequence {
+
+        private ByteBuffer bytes;
+        private int offset, length;
+
+        AsciiSequence(ByteBuffer bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiSequence(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] copy = new byte[length];
+            ByteBuffer view = bytes.duplicate();
+            view.position(offset);
+            view.get(copy);
+            return new String(copy, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads the lines of another source ahead on another thread, so that reading the file
+ * (and filtering its lines) overlaps with whatever is done with the lines that were already
+ * read. The lines are copied and handed over in chunks through a bounded queue, so the
+ * reading thread is never more than a few chunks ahead. The reading threads are kept in a
+ * pool that all the sources share, so checking many files one after the other reuses the
+ * same thread, and only sources that are read at the same time have threads of their own.
+ * Lines that the source rejects are thrown by readLine in their place, each with the line
+ * number and column of the source at that point, so this source behaves exactly like the
+ * one it reads. Once the source throws an IOException (or ends), nothing more is read.
+ * Not thread-safe: the lines must all be read by a single thread.
+ */
+public class PrefetchingLineSource implements LineSource {
+
+    /*
+     * Lines (or the errors in their place) read one after the other, with the line number
+     * and column of the source after each of them.
+     */
+    private static class Chunk {
+        private Object[] items = new Object[CHUNK_SIZE];
+        private int[] lineNumbers = new int[CHUNK_SIZE], columns = new int[CHUNK_SIZE];
+        private int size;
+
+        // Adds an item, and returns true if the chunk is full.
+        private boolean add(Object item, int lineNumber, int column) {
+            items[size] = item;
+            lineNumbers[size] = lineNumber;
+            columns[size++] = column;
+            return size == CHUNK_SIZE;
+        }
+    }
+
+    // Constants.
+    private static final int CHUNK_SIZE = 1 << 8, QUEUED_CHUNKS = 1 << 4;
+    private static final Object END = new Object();
+    private static final String THREAD_NAME = "sjavac-reader";
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Variables.
+    private LineSource source;
+    private BlockingQueue<Chunk> queue;
+    private Thread reader;
+    private Chunk chunk;
+    private int index, lineNumber, column, linesReturned;
+    private boolean ended, closed;
+
+    /**
+     * Creates a new source of the lines of the given source, and starts reading them.
+     * The given source is closed by close.
+     *
+     * @param source the source to read the lines from.
+     */
+    public PrefetchingLineSource(LineSource source) {
+        this.source = source;
+        queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+        READERS.execute(this::prefetch);
+    }
+
+    /**
+     * Returns the next line that was read ahead, or throws the error that was found in its place.
+     *
+     * @return the trimmed line, or null if the end of the source has been reached.
+     * @throws InterruptedIOException if the thread is interrupted while waiting for a line.
+     */
+    @Override
+    public CharSequence readLine() throws IOException, SJavaFormatException {
+        if (ended)
+            return null;
+        if (chunk == null || index == chunk.size) {
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            index = 0;
+        }
+        Object item = chunk.items[index];
+        lineNumber = chunk.lineNumbers[index];
+        column = chunk.columns[index++];
+        if (item instanceof String) {
+            linesReturned++;
+            return (String) item;
+        }
+        if (item == END) {
+            ended = true;
+            return null;
+        }
+        ended = !(item instanceof SJavaFormatException); // Nothing was read after other errors.
+        throw rethrow((Throwable) item);
+    }
+
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public int column() {
+        return column;
+    }
+
+    @Override
+    public int linesReturned() {
+        return linesReturned;
+    }
+
+    /**
+     * Stops reading ahead, and closes the source.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        synchronized (this) {
+            closed = true;
+            if (reader != null)
+                reader.interrupt();
+            while (reader != null)
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        source.close();
+    }
+
+    /*
+     * Reads the whole source into chunks, until it ends or throws something other than a line
+     * that it rejects. (Runs on a thread of the pool, and stops once it's interrupted. The thread
+     * is kept in reader while it runs, so that close can interrupt it and wait for it)
+     */
+    private void prefetch() {
+        synchronized (this) {
+            if (closed)
+                return;
+            reader = Thread.currentThread();
+        }
+        try {
+            boolean done = false;
+            while (!done) {
+                Chunk next = new Chunk();
+                boolean full = false;
+                while (!done && !full) {
+                    Object item;
+                    try {
+                        CharSequence line = source.readLine();
+                        item = line == null ? END : line.toString(); // The source may reuse its view.
+                        done = line == null;
+                    } catch (SJavaFormatException e) {
+                        item = e;
+                    } catch (IOException | RuntimeException | Error e) {
+                        item = e;
+                        done = true;
+                    }
+                    full = next.add(item, source.lineNumber(), source.column());
+                }
+                queue.put(next);
+            }
+        } catch (InterruptedException e) {
+            // Closed before the whole source was read.
+        } finally {
+            synchronized (this) {
+                reader = null;
+                Thread.interrupted(); // The thread goes back to the pool, for the next source.
+                notifyAll();
+            }
+        }
+    }
+
+    // Throws the given error of the source, which is either a checked error of readLine or unchecked.
+    private static IOException rethrow(Throwable error) throws SJavaFormatException {
+        if (error instanceof SJavaFormatException)
+            throw (SJavaFormatException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+        return (IOException) error;
+    }
+}
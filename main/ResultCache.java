@@ -0,0 +1,215 @@
+package oop.ex6.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An on-disk cache of check results, keyed by the hash of a file's content and the
+ * version of the checker. Every entry is written atomically, so several processes
+ * can share the same cache directory. Once the cache holds too many entries,
+ * the least recently used ones are evicted. The entries are counted approximately as
+ * they're written, and the directory is only scanned once the count is over the limit.
+ */
+public class ResultCache {
+
+    // Constants.
+    /**
+     * The version of the checking rules. Must be changed whenever a change to the
+     * checker could change the result of a file, so that old results aren't used.
+     */
+    public static final String CHECKER_VERSION = "7";
+    /**
+     * The default maximal number of entries in the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+    /**
+     * Returned when there's no cached result.
+     */
+    public static final int MISSING = -1;
+    private static final String HASH_ALGORITHM = "SHA-256", HEX_DIGITS = "0123456789abcdef",
+            TEMP_PREFIX = ".", TEMP_SUFFIX = ".tmp";
+    private static final int HALF_BYTE = 4, HALF_BYTE_MASK = 0xf;
+    private static final double EVICTION_TARGET = 0.9;
+
+    // Variables.
+    private Path directory;
+    private int maxEntries;
+    private AtomicInteger entryCount;
+    private ReentrantLock evictionLock;
+
+    /**
+     * Creates a new cache that uses the given directory, with the default size.
+     *
+     * @param directory the directory to keep the entries in. (Created if needed)
+     */
+    public ResultCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a new cache that uses the given directory.
+     *
+     * @param directory  the directory to keep the entries in. (Created if needed)
+     * @param maxEntries the maximal number of entries to keep.
+     */
+    public ResultCache(Path directory, int maxEntries) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxEntries = maxEntries;
+        entryCount = new AtomicInteger(maxEntries + 1); // Over the limit, so the first write counts them.
+        evictionLock = new ReentrantLock();
+    }
+
+    /**
+     * Returns the cache key of the given file content.
+     *
+     * @param content the content of the file.
+     * @return the key of the content.
+     */
+    public static String key(byte[] content) {
+        MessageDigest digest = newDigest();
+        digest.update(content);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns the cache key of the content that the given digest has been given.
+     * (The digest is reset)
+     *
+     * @param digest a digest that was created by newDigest and given the whole content.
+     * @return the key of the content.
+     */
+    public static String key(MessageDigest digest) {
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns a new digest for hashing a file's content as it's read, which has already been
+     * given the checker version. (See key(MessageDigest))
+     *
+     * @return a new digest.
+     */
+    public static MessageDigest newDigest() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Java platform supports SHA-256.
+        }
+        digest.update(CHECKER_VERSION.getBytes(StandardCharsets.UTF_8));
+        return digest;
+    }
+
+    // Returns the hexadecimal representation of the given hash.
+    private static String toHex(byte[] hash) {
+        StringBuilder key = new StringBuilder();
+        for (byte b : hash)
+            key.append(HEX_DIGITS.charAt((b >> HALF_BYTE) & HALF_BYTE_MASK))
+                    .append(HEX_DIGITS.charAt(b & HALF_BYTE_MASK));
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached result code of the given key, or MISSING if there isn't one.
+     *
+     * @param key the key of the file content.
+     * @return the cached result code, or MISSING if there isn't one.
+     */
+    public int get(String key) {
+        Path entry = directory.resolve(key);
+        try {
+            byte[] code = Files.readAllBytes(entry);
+            if (code.length != 1 || (code[0] != '0' + Sjavac.LEGAL_CODE
+                    && code[0] != '0' + Sjavac.ILLEGAL_CODE))
+                return MISSING; // Written by an incompatible checker.
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return code[0] - '0';
+        } catch (IOException e) {
+            return MISSING; // Missing, or evicted by another process while being read.
+        }
+    }
+
+    /**
+     * Saves the result code of the given key. Only legal and illegal results are saved.
+     * Failing to save a result doesn't affect the check, so it's silently ignored.
+     *
+     * @param key  the key of the file content.
+     * @param code the result code of the file.
+     */
+    public void put(String key, int code) {
+        if (code != Sjavac.LEGAL_CODE && code != Sjavac.ILLEGAL_CODE)
+            return;
+        try {
+            Path temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+            try {
+                Files.write(temp, new byte[]{(byte) ('0' + code)});
+                Files.move(temp, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        if (entryCount.incrementAndGet() > maxEntries)
+            evict();
+    }
+
+    /*
+     * Counts the entries again, and if the cache holds too many of them, deletes the least
+     * recently used ones. The temporary files of entries that are being written (by any process)
+     * aren't entries, so they're neither counted nor deleted. The entries are only read for their
+     * last use time once there are too many of them.
+     * (Only one thread evicts at a time, the others just skip it)
+     */
+    private void evict() {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            List<Path> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    String name = entry.getFileName().toString();
+                    if (!name.startsWith(TEMP_PREFIX) && !name.endsWith(TEMP_SUFFIX))
+                        entries.add(entry);
+                }
+            }
+            entryCount.set(entries.size());
+            if (entries.size() <= maxEntries)
+                return;
+            HashMap<Path, FileTime> lastUsed = new HashMap<>();
+            for (Path entry : entries)
+                lastUsed.put(entry, lastUsed(entry));
+            entries.sort(Comparator.comparing(lastUsed::get));
+            int toDelete = entries.size() - (int) (maxEntries * EVICTION_TARGET);
+            for (int i = 0; i < toDelete; i++)
+                Files.deleteIfExists(entries.get(i));
+            entryCount.set(entries.size() - toDelete);
+        } catch (IOException e) {
+            // Eviction is retried after the next write, since the count is still over the limit.
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Returns the last time the given entry was used.
+    private static FileTime lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0); // Already deleted, so it's the first to go.
+        }
+    }
+}
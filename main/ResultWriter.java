@@ -0,0 +1,304 @@
+package oop.ex6.main;
+
+import oop.ex6.main.SJavaFormatException.Kind;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes the results of checks in a machine-readable format, one file at a time as soon as
+ * each file has been checked, through a buffered writer. Nothing but the buffer is held in
+ * memory, so any number of results can be written.
+ * NDJSON writes a single record (a JSON object on its own line) for every file, with its
+ * path, result code, check time and its first error, or all of its errors when recovering
+ * from errors. SARIF writes a single SARIF 2.1.0 log with a result for every error (and IO
+ * error) of every file, whose closing brackets are written by close. Files are located by
+ * their file URIs, and a file in an archive ("archive!/path") by its path in the archive, as
+ * an artifact whose parent is the archive. (So the artifacts of the archived files that have
+ * results are held in memory, and written by close)
+ * Thread-safe, results of files that are checked concurrently are written one after the other.
+ * Like a PrintStream, writing never throws. The first error is kept and thrown by close.
+ */
+public class ResultWriter implements AutoCloseable {
+
+    /**
+     * The formats that results can be written in.
+     */
+    public enum Format {
+        /**
+         * A JSON object for every file, on its own line.
+         */
+        NDJSON,
+        /**
+         * A single SARIF log.
+         */
+        SARIF
+    }
+
+    // Constants.
+    private static final int BUFFER_SIZE = 1 << 16, ESCAPE_LIMIT = 0x20, HEX_DIGITS = 4;
+    private static final String SARIF_START = "{\"version\":\"2.1.0\",\"$schema\":"
+            + "\"https://json.schemastore.org/sarif-2.1.0.json\",\"runs\":[{\"tool\":{\"driver\":"
+            + "{\"name\":\"sjavac\",\"rules\":[", SARIF_RESULTS = "]}},\"results\":[", SARIF_END = "}]}";
+    private static final String CURRENT_DIRECTORY = "./", SCHEME_SEPARATOR = ":", PATH_SEPARATOR = "/";
+    private static final int NO_PARENT = -1;
+    private static final String IO_ERROR_RULE = "IO_ERROR", IO_ERROR_MESSAGE = "The file couldn't be read.";
+    private static final char LINE_END = '\n', SEPARATOR = ',';
+
+    // Variables.
+    private Writer out;
+    private Format format;
+    private boolean first;
+    private IOException error;
+    private String lastFile, lastLocation;
+    private HashMap<String, Integer> artifactIndices;
+    private List<String> artifactUris;
+    private List<Integer> artifactParents;
+
+    /**
+     * Creates a new writer of results to the given stream, and writes the start of the log
+     * in SARIF. The stream is closed by close.
+     *
+     * @param out    the stream to write the results to.
+     * @param format the format to write the results in.
+     */
+    public ResultWriter(OutputStream out, Format format) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        first = true;
+        artifactIndices = new HashMap<>();
+        artifactUris = new ArrayList<>();
+        artifactParents = new ArrayList<>();
+        if (format == Format.SARIF)
+            writeRules();
+    }
+
+    /**
+     * Writes the result of a single file.
+     *
+     * @param file   the path of the file.
+     * @param code   the result code of the file.
+     * @param errors the errors of the file, or null if they aren't known. (Such as for a
+     *               cached result, or a file that couldn't be read)
+     * @param nanos  the time that checking the file took, in nanoseconds.
+     */
+    public synchronized void write(String file, int code, Diagnostics errors, long nanos) {
+        if (error != null)
+            return;
+        try {
+            if (format == Format.NDJSON)
+                writeRecord(file, code, errors, nanos);
+            else if (code == Sjavac.IO_ERROR)
+                writeResult(file, IO_ERROR_RULE, IO_ERROR_MESSAGE, SJavaFormatException.UNKNOWN_LINE,
+                        SJavaFormatException.UNKNOWN_LINE);
+            else if (errors != null)
+                for (int i = 0; i < errors.size(); i++)
+                    writeResult(file, errors.getKind(i).name(), errors.getKind(i).getDescription(),
+                            errors.getLine(i), errors.getColumn(i));
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Writes the end of the log in SARIF, with the artifacts of the archived files, and then
+     * flushes and closes the stream.
+     *
+     * @throws IOException if writing any of the results failed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (error == null && format == Format.SARIF) {
+                out.write(']');
+                writeArtifacts();
+                out.write(SARIF_END);
+                out.write(LINE_END);
+            }
+        } finally {
+            out.close();
+        }
+        if (error != null)
+            throw error;
+    }
+
+    // Writes the start of a SARIF log, with a rule for every kind of problem.
+    private void writeRules() throws IOException {
+        out.write(SARIF_START);
+        writeRule(IO_ERROR_RULE, IO_ERROR_MESSAGE);
+        for (Kind kind : Kind.values()) {
+            out.write(SEPARATOR);
+            writeRule(kind.name(), kind.getDescription());
+        }
+        out.write(SARIF_RESULTS);
+    }
+
+    // Writes a single SARIF rule.
+    private void writeRule(String id, String description) throws IOException {
+        out.write("{\"id\":");
+        writeString(id);
+        out.write(",\"shortDescription\":{\"text\":");
+        writeString(description);
+        out.write("}}");
+    }
+
+    // Writes a single NDJSON record.
+    private void writeRecord(String file, int code, Diagnostics errors, long nanos) throws IOException {
+        out.write("{\"path\":");
+        writeString(file);
+        out.write(",\"code\":");
+        out.write(Integer.toString(code));
+        out.write(",\"nanos\":");
+        out.write(Long.toString(nanos));
+        if (errors != null) {
+            out.write(",\"errors\":[");
+            for (int i = 0; i < errors.size(); i++) {
+                if (i > 0)
+                    out.write(SEPARATOR);
+                out.write("{\"kind\":");
+                writeString(errors.getKind(i).name());
+                out.write(",\"line\":");
+                out.write(Integer.toString(errors.getLine(i)));
+                out.write(",\"column\":");
+                out.write(Integer.toString(errors.getColumn(i)));
+                out.write(",\"message\":");
+                writeString(errors.getMessage(i));
+                out.write('}');
+            }
+            out.write(']');
+        }
+        out.write('}');
+        out.write(LINE_END);
+    }
+
+    // Writes a single SARIF result. (The region is left out if the line isn't known)
+    private void writeResult(String file, String rule, String message, int line, int column) throws IOException {
+        if (!first)
+            out.write(SEPARATOR);
+        first = false;
+        out.write("{\"ruleId\":");
+        writeString(rule);
+        out.write(",\"level\":\"error\",\"message\":{\"text\":");
+        writeString(message);
+        out.write("},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":");
+        if (!file.equals(lastFile)) { // The errors of a file are written one after the other.
+            lastLocation = location(file);
+            lastFile = file;
+        }
+        out.write(lastLocation);
+        if (line != SJavaFormatException.UNKNOWN_LINE) {
+            out.write(",\"region\":{\"startLine\":");
+            out.write(Integer.toString(line));
+            if (column != SJavaFormatException.UNKNOWN_LINE) {
+                out.write(",\"startColumn\":");
+                out.write(Integer.toString(column));
+            }
+            out.write('}');
+        }
+        out.write("}}]}");
+    }
+
+    /*
+     * Returns the artifact location of the given file: its file URI, or the URI of its path in
+     * the archive, together with the index of its artifact.
+     */
+    private String location(String file) throws IOException {
+        int separator = file.indexOf(BatchChecker.ENTRY_SEPARATOR);
+        if (separator < 0)
+            return "{\"uri\":" + quote(Paths.get(file).toUri().toString()) + '}';
+        String archive = file.substring(0, separator), uri = entryUri(file.substring(separator
+                + BatchChecker.ENTRY_SEPARATOR.length()));
+        int parent = artifact(archive, Paths.get(archive).toUri().toString(), NO_PARENT);
+        return "{\"uri\":" + quote(uri) + ",\"index\":" + artifact(file, uri, parent) + '}';
+    }
+
+    // Returns the index of the artifact with the given name, and adds it if it's new.
+    private int artifact(String name, String uri, int parent) {
+        Integer index = artifactIndices.get(name);
+        if (index == null) {
+            index = artifactUris.size();
+            artifactIndices.put(name, index);
+            artifactUris.add(uri);
+            artifactParents.add(parent);
+        }
+        return index;
+    }
+
+    /*
+     * Returns the percent-encoded relative URI of the given path in an archive. (A path whose
+     * first segment contains a ':' is prefixed with "./", so it isn't taken as a scheme)
+     */
+    private static String entryUri(String path) throws IOException {
+        int slash = path.indexOf(PATH_SEPARATOR);
+        if (path.substring(0, slash < 0 ? path.length() : slash).contains(SCHEME_SEPARATOR))
+            path = CURRENT_DIRECTORY + path;
+        try {
+            return new URI(null, null, path, null).toASCIIString();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Writes the artifacts of the archived files and of their archives, if there are any.
+    private void writeArtifacts() throws IOException {
+        if (artifactUris.isEmpty())
+            return;
+        out.write(",\"artifacts\":[");
+        for (int i = 0; i < artifactUris.size(); i++) {
+            if (i > 0)
+                out.write(SEPARATOR);
+            out.write("{\"location\":{\"uri\":");
+            writeString(artifactUris.get(i));
+            out.write('}');
+            if (artifactParents.get(i) != NO_PARENT) {
+                out.write(",\"parentIndex\":");
+                out.write(Integer.toString(artifactParents.get(i)));
+            }
+            out.write('}');
+        }
+        out.write(']');
+    }
+
+    // Returns the given string as a quoted JSON string.
+    private static String quote(String string) throws IOException {
+        StringBuilder quoted = new StringBuilder();
+        writeString(quoted, string);
+        return quoted.toString();
+    }
+
+    // Writes the given string as a quoted JSON string.
+    private void writeString(String string) throws IOException {
+        writeString(out, string);
+    }
+
+    // Appends the given string as a quoted JSON string.
+    private static void writeString(Appendable out, String string) throws IOException {
+        out.append('"');
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+                out.append(c);
+            } else if (c < ESCAPE_LIMIT) {
+                String hex = Integer.toHexString(c);
+                out.append("\\u");
+                for (int j = hex.length(); j < HEX_DIGITS; j++)
+                    out.append('0');
+                out.append(hex);
+            } else
+                out.append(c);
+        }
+        out.append('"');
+    }
+}
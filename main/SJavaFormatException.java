@@ -2,6 +2,169 @@ package oop.ex6.main;
 
 /**
  * Exception that represents a problem with the format of an S-Java file.
+ * It carries the kind of the problem and the line it was found in. Since it's thrown
+ * for every invalid file, it doesn't capture a stack trace unless debugging is enabled.
  */
 public class SJavaFormatException extends Exception {
+
+    /**
+     * The kinds of format problems.
+     */
+    public enum Kind {
+        INVALID_LINE("The line isn't a valid statement."),
+        INDENTED_COMMENT("A comment must start at the beginning of the line."),
+        UNCLOSED_BLOCK("A block isn't closed."),
+        MISSING_RETURN("A method must end with a return statement."),
+        INVALID_METHOD_DEFINITION("The method definition is incorrect."),
+        DUPLICATE_METHOD("A method with the same name already exists."),
+        UNKNOWN_METHOD("The method doesn't exist."),
+        WRONG_ARGUMENTS("The arguments don't match the method's parameters."),
+        INVALID_VARIABLE_DEFINITION("The variable definition is incorrect."),
+        INVALID_TYPE("The type doesn't exist."),
+        INVALID_NAME("The variable name isn't valid."),
+        NAME_CONFLICT("A variable with the same name already exists in this scope."),
+        UNKNOWN_VARIABLE("The variable doesn't exist."),
+        UNASSIGNED_VARIABLE("The variable is used before it's assigned."),
+        FINAL_ASSIGNMENT("A final variable can't be assigned."),
+        TYPE_MISMATCH("The value doesn't match the type of the variable."),
+        INVALID_CONDITION("The condition isn't boolean.");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Returns a description of this kind of problem.
+         *
+         * @return the description of this kind.
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    // Constants.
+    /**
+     * The line of an exception whose line isn't known yet.
+     */
+    public static final int UNKNOWN_LINE = 0;
+    private static final String LINE_PREFIX = "Line ", COLUMN_PREFIX = ", column ", LINE_SEPARATOR = ": ";
+
+    // Variables.
+    private static volatile boolean debug;
+    private Kind kind;
+    private int line, column, offset;
+
+    /**
+     * Creates a new exception of the given kind, whose line isn't known yet.
+     *
+     * @param kind the kind of the problem.
+     */
+    public SJavaFormatException(Kind kind) {
+        super(null, null, false, debug);
+        this.kind = kind;
+    }
+
+    /**
+     * Sets whether new exceptions capture a stack trace. (Disabled by default, since
+     * capturing the trace is most of the cost of rejecting a file)
+     *
+     * @param enabled true to capture stack traces.
+     */
+    public static void setDebug(boolean enabled) {
+        debug = enabled;
+    }
+
+    /**
+     * Returns true if new exceptions capture a stack trace.
+     *
+     * @return true if debugging is enabled.
+     */
+    public static boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Moves the problem by the given number of characters into its statement. Called by each
+     * part of the program that checks a part of the statement, with the index that the part
+     * starts at, so the offsets add up to the index of the problem in the statement.
+     * (Ignored once the line of the problem has been set)
+     *
+     * @param offset the index in the statement (or in the part of it that is being checked)
+     *               of the part that the problem was found in.
+     * @return this exception.
+     */
+    public SJavaFormatException atOffset(int offset) {
+        if (line == UNKNOWN_LINE)
+            this.offset += offset;
+        return this;
+    }
+
+    /**
+     * Sets the position that the problem was found at, unless it has already been set by a
+     * more specific part of the program. The column is moved by the offset of the problem in
+     * its statement. (See atOffset)
+     *
+     * @param line   the line number (starting from 1).
+     * @param column the column (starting from 1) that the statement starts at, or UNKNOWN_LINE
+     *               if it isn't known.
+     * @return this exception.
+     */
+    public SJavaFormatException atLine(int line, int column) {
+        if (this.line == UNKNOWN_LINE) {
+            this.line = line;
+            this.column = column == UNKNOWN_LINE ? column : column + offset;
+        }
+        return this;
+    }
+
+    /**
+     * Returns a message that describes a problem of the given kind at the given position.
+     *
+     * @param kind   the kind of the problem.
+     * @param line   the line number, or UNKNOWN_LINE if it isn't known.
+     * @param column the column, or UNKNOWN_LINE if it isn't known.
+     * @return the message.
+     */
+    public static String format(Kind kind, int line, int column) {
+        if (line == UNKNOWN_LINE)
+            return kind.getDescription();
+        if (column == UNKNOWN_LINE)
+            return LINE_PREFIX + line + LINE_SEPARATOR + kind.getDescription();
+        return LINE_PREFIX + line + COLUMN_PREFIX + column + LINE_SEPARATOR + kind.getDescription();
+    }
+
+    /**
+     * Returns the kind of the problem.
+     *
+     * @return the kind of the problem.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the line that the problem was found in, or UNKNOWN_LINE if it isn't known.
+     *
+     * @return the line number (starting from 1).
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column that the problem was found at, or UNKNOWN_LINE if it isn't known.
+     *
+     * @return the column (starting from 1).
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public String getMessage() {
+        return format(kind, line, column);
+    }
 }
@@ -1,30 +1,575 @@
 package oop.ex6.main;
 
+import oop.ex6.blocks.CheckEvents;
+import oop.ex6.blocks.CheckOptions;
 import oop.ex6.blocks.GlobalBlock;
+import oop.ex6.blocks.ProjectChecker;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Checks if an SJava file has any errors.
+ * If given more than one file, a directory, an archive (.zip, .jar, .tar, .tar.gz or .tgz)
+ * or an argument file ("@file"), checks all of them concurrently in batch mode. The files
+ * in archives are checked straight from the archive, without extracting them.
+ * With "--server [socket]" keeps running and answers check requests, and with
+ * "--client socket file" asks a running server to check a file. With "--watch directory..."
+ * checks all the files under the directories once, and then every file that changes.
+ * With "--project path..." checks the files (and the files under the directories) as a
+ * single project, whose files can use each other's global variables and methods.
+ * Any of these can be preceded by "--cache directory", which reuses the results of
+ * files whose content hasn't changed, by "--parallel-methods", which checks the
+ * methods of each file concurrently, and by "--streaming", which holds only the
+ * signatures and one method at a time in memory, for very large files, and by
+ * "--signatures directory", which keeps a binary table of the global scope of every file
+ * there, and checks only the methods of a file whose table is already kept, or by
+ * "--pipelined", which reads each file ahead on another thread and checks every method on
+ * a shared pool as soon as it has been read, while the rest of the file is read. ("--pipelined"
+ * can't be combined with the three options before it)
+ * Errors are reported as a single line with their line number, and "--debug" also
+ * prints their stack trace. When checking a single file, "--all-errors" keeps checking
+ * after an error and reports every error of the file, sorted by their position.
+ * "--timings" prints the time spent in each phase of the checks to System.err once
+ * they're done. (The same phases are always emitted as Flight Recorder events)
+ * "--format ndjson" or "--format sarif" writes the result of every file to System.out in
+ * that format instead, as soon as it's checked, for a single file or in batch mode.
+ * (The result code of the whole run is then only the exit code)
  */
 public class Sjavac {
 
-    private static final int LEGAL_CODE = 0, ILLEGAL_CODE = 1, IO_ERROR = 2,
-            FILE_LOCATION = 0;
+    /*
+     * The cached result of a file that is hashed while it's streamed, looked up once the first
+     * pass has read the file. (See CheckOptions.hashed) With legalOnly, only a legal result is
+     * used, for when an illegal file must be checked again for its error.
+     */
+    private static class CachedResult implements Predicate<String> {
+        private boolean legalOnly;
+        private String key;
+        private int code = ResultCache.MISSING;
+
+        private CachedResult(boolean legalOnly) {
+            this.legalOnly = legalOnly;
+        }
+
+        @Override
+        public boolean test(String key) {
+            this.key = key;
+            code = cache.get(key);
+            if (legalOnly && code != LEGAL_CODE)
+                code = ResultCache.MISSING;
+            return code != ResultCache.MISSING;
+        }
+
+        // Returns the cached code if there's one, and otherwise caches the given code and returns it.
+        private int store(int checked) {
+            if (code != ResultCache.MISSING)
+                return code;
+            if (key != null) // Unless the file couldn't be read to its end.
+                cache.put(key, checked);
+            return checked;
+        }
+    }
+
+    /**
+     * The result codes of a check.
+     */
+    static final int LEGAL_CODE = 0, ILLEGAL_CODE = 1, IO_ERROR = 2;
+    private static final int FILE_LOCATION = 0, OPTION = 0, OPTION_ARGUMENT = 1, SOCKET_LOCATION = 1,
+            CLIENT_FILE_LOCATION = 2;
+    private static final String SERVER_OPTION = "--server", CLIENT_OPTION = "--client",
+            CACHE_OPTION = "--cache", PARALLEL_METHODS_OPTION = "--parallel-methods",
+            STREAMING_OPTION = "--streaming", DEBUG_OPTION = "--debug", ALL_ERRORS_OPTION = "--all-errors",
+            TIMINGS_OPTION = "--timings", WATCH_OPTION = "--watch", FORMAT_OPTION = "--format",
+            SIGNATURES_OPTION = "--signatures", PROJECT_OPTION = "--project", PIPELINED_OPTION = "--pipelined";
     private static final String FILE_NOT_FOUND = "IO ERROR: File was not found.",
-            IO_ERROR_STRING = "IO ERROR: A problem has occurred when reading the file.";
+            IO_ERROR_STRING = "IO ERROR: A problem has occurred when reading the file.",
+            UNKNOWN_FORMAT = "ERROR: The output format must be ndjson or sarif.",
+            PIPELINED_CONFLICT = "ERROR: --pipelined can't be combined with --parallel-methods, --streaming"
+                    + " or --signatures.", SEPARATOR = " ";
+
+    private static final Checker CHECKER = new Checker(),
+            RECOVERING_CHECKER = new Checker(Charset.defaultCharset(), true);
+
+    // Variables.
+    private static ResultCache cache;
+    private static boolean parallelMethods, streaming, pipelined, allErrors, timings;
+    private static ResultWriter.Format format;
+    private static Path signatures;
 
     public static void main(String[] args) {
         try {
-            new GlobalBlock(args[FILE_LOCATION]);
-            System.out.println(LEGAL_CODE);
+            args = parseOptions(args);
+        } catch (IOException e) {
+            System.err.println(IO_ERROR_STRING);
+            System.out.println(IO_ERROR);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(UNKNOWN_FORMAT);
+            System.out.println(IO_ERROR);
+            return;
+        }
+        if (pipelined && (parallelMethods || streaming || signatures != null)) {
+            System.err.println(PIPELINED_CONFLICT);
+            System.out.println(IO_ERROR);
+            return;
+        }
+        if (timings)
+            CheckEvents.startSummary();
+        try {
+            run(args);
+        } finally {
+            printTimings();
+        }
+    }
+
+    // Runs the mode that the arguments ask for.
+    private static void run(String[] args) {
+        if (args.length > 0 && args[OPTION].equals(SERVER_OPTION)) {
+            runServer(args);
+            return;
+        }
+        if (args.length > OPTION_ARGUMENT && args[OPTION].equals(WATCH_OPTION)) {
+            runWatch(Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length));
+            return;
+        }
+        if (args.length > CLIENT_FILE_LOCATION && args[OPTION].equals(CLIENT_OPTION)) {
+            runClient(args);
+            return;
+        }
+        if (args.length > OPTION_ARGUMENT && args[OPTION].equals(PROJECT_OPTION)) {
+            runProject(Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length));
+            return;
+        }
+        if (format != null) {
+            runReport(args);
+            return;
+        }
+        if (args.length > 0 && BatchChecker.isBatch(args)) {
+            runBatch(args);
+            return;
+        }
+        if (cache != null && !allErrors) {
+            System.out.println(reportCached(args[FILE_LOCATION]));
+            return;
+        }
+        System.out.println(report(args[FILE_LOCATION]));
+    }
+
+    // Checks the given file, prints its errors to System.err and returns its result code.
+    private static int report(String file) {
+        try {
+            if (allErrors)
+                return checkAll(file);
+            checkFile(file, null);
+            return LEGAL_CODE;
+        } catch (SJavaFormatException | IOException e) {
+            return report(e);
+        }
+    }
+
+    // Prints the error that a check stopped at to System.err and returns its result code.
+    private static int report(Exception error) {
+        if (error instanceof SJavaFormatException) {
+            if (SJavaFormatException.isDebug())
+                error.printStackTrace();
+            else
+                System.err.println(error.getMessage());
+            return ILLEGAL_CODE;
+        }
+        System.err.println(error instanceof FileNotFoundException ? FILE_NOT_FOUND : IO_ERROR_STRING);
+        return IO_ERROR;
+    }
+
+    /*
+     * Returns the result code of the given file if it's cached as legal, and otherwise checks and
+     * reports it like report, so the output is the same as without the cache. (Only the result
+     * code is cached, so an illegal file is checked again for its error) The key is the hash of
+     * the same bytes that are checked: the file is read once for both, or hashed while it's
+     * streamed.
+     */
+    private static int reportCached(String file) {
+        if (streaming && ChannelLineReader.isSupported())
+            return reportCachedStreaming(file);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(Paths.get(file));
+        } catch (IOException e) {
+            return report(file); // Reports why the file can't be read.
+        }
+        String key = ResultCache.key(content);
+        if (cache.get(key) == LEGAL_CODE)
+            return LEGAL_CODE;
+        CheckOptions options = new CheckOptions().source(new MappedLineReader(ByteBuffer.wrap(content)))
+                .parallelMethods(parallelMethods);
+        if (pipelined)
+            options.pipelined(null);
+        int code;
+        try {
+            new GlobalBlock(options);
+            code = LEGAL_CODE;
+        } catch (SJavaFormatException | IOException e) {
+            code = report(e);
+        }
+        cache.put(key, code);
+        return code;
+    }
+
+    // Reports the given file in streaming mode like reportCached, hashing it while it's read.
+    private static int reportCachedStreaming(String file) {
+        CachedResult result = new CachedResult(true);
+        int code;
+        try {
+            new GlobalBlock(hashedOptions(file, result));
+            code = LEGAL_CODE;
+        } catch (SJavaFormatException | IOException e) {
+            code = report(e);
+        }
+        return result.store(code);
+    }
+
+    /**
+     * Checks the given file and returns its result code.
+     *
+     * @param file the file path (including name) of the file to check.
+     * @return the result code of the file.
+     */
+    static int check(String file) {
+        if (cache != null)
+            return checkCached(file);
+        try {
+            checkFile(file, null);
+            return LEGAL_CODE;
+        } catch (SJavaFormatException e) {
+            return ILLEGAL_CODE;
+        } catch (IOException e) {
+            return IO_ERROR;
+        }
+    }
+
+    /**
+     * Checks the given file, writes its result and returns its result code.
+     * Its errors are written too, unless its result is cached.
+     *
+     * @param file   the file path (including name) of the file to check.
+     * @param writer the writer to write the result to.
+     * @return the result code of the file.
+     */
+    static int check(String file, ResultWriter writer) {
+        long start = System.nanoTime();
+        Diagnostics errors = null;
+        int code;
+        if (cache != null && !allErrors)
+            code = checkCached(file);
+        else {
+            errors = new Diagnostics();
+            code = check(file, errors);
+        }
+        writer.write(file, code, code == IO_ERROR ? null : errors, System.nanoTime() - start);
+        return code;
+    }
+
+    /**
+     * Checks the source code that is read from the given stream, such as an entry of an
+     * archive, and writes its result if a writer is given. Returns its result code.
+     * (The stream isn't closed, and results of streams are never cached)
+     *
+     * @param name   the name to write the result with.
+     * @param in     the stream to read the source code from.
+     * @param writer the writer to write the result to, or null to only return the code.
+     * @return the result code of the source.
+     * @throws IOException if the stream can't be read.
+     */
+    static int check(String name, InputStream in, ResultWriter writer) throws IOException {
+        long start = System.nanoTime();
+        CheckResult result = (allErrors ? RECOVERING_CHECKER : CHECKER).check(in);
+        if (writer != null)
+            writer.write(name, result.getCode(), result.getErrors(), System.nanoTime() - start);
+        return result.getCode();
+    }
+
+    /**
+     * Checks the lines of the given source and returns their result code.
+     *
+     * @param source the source to read the lines from.
+     * @return the result code of the source.
+     */
+    static int check(LineSource source) {
+        try {
+            new GlobalBlock(new CheckOptions().source(source).parallelMethods(parallelMethods));
+            return LEGAL_CODE;
         } catch (SJavaFormatException e) {
-            e.printStackTrace();
-            System.out.println(ILLEGAL_CODE);
-        } catch (FileNotFoundException e) {
-            System.err.println(FILE_NOT_FOUND);
+            return ILLEGAL_CODE;
+        } catch (IOException e) {
+            return IO_ERROR;
+        }
+    }
+
+    // Removes the leading options from the arguments and applies them.
+    private static String[] parseOptions(String[] args) throws IOException {
+        while (args.length > OPTION_ARGUMENT)
+            if (args[OPTION].equals(CACHE_OPTION)) {
+                cache = new ResultCache(Paths.get(args[OPTION_ARGUMENT]));
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT + 1, args.length);
+            } else if (args[OPTION].equals(SIGNATURES_OPTION)) {
+                signatures = Files.createDirectories(Paths.get(args[OPTION_ARGUMENT]));
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT + 1, args.length);
+            } else if (args[OPTION].equals(PARALLEL_METHODS_OPTION)) {
+                parallelMethods = true;
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length);
+            } else if (args[OPTION].equals(STREAMING_OPTION)) {
+                streaming = true;
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length);
+            } else if (args[OPTION].equals(PIPELINED_OPTION)) {
+                pipelined = true;
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length);
+            } else if (args[OPTION].equals(TIMINGS_OPTION)) {
+                timings = true;
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length);
+            } else if (args[OPTION].equals(ALL_ERRORS_OPTION)) {
+                allErrors = true;
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length);
+            } else if (args[OPTION].equals(FORMAT_OPTION)) {
+                format = ResultWriter.Format.valueOf(args[OPTION_ARGUMENT].toUpperCase());
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT + 1, args.length);
+            } else if (args[OPTION].equals(DEBUG_OPTION)) {
+                SJavaFormatException.setDebug(true);
+                args = Arrays.copyOfRange(args, OPTION_ARGUMENT, args.length);
+            } else
+                break;
+        return args;
+    }
+
+    // Checks the given file, prints all of its errors to System.err and returns its result code.
+    private static int checkAll(String file) throws IOException, SJavaFormatException {
+        Diagnostics diagnostics = new Diagnostics();
+        checkFile(file, diagnostics);
+        for (int i = 0; i < diagnostics.size(); i++)
+            System.err.println(diagnostics.getMessage(i));
+        return diagnostics.isEmpty() ? LEGAL_CODE : ILLEGAL_CODE;
+    }
+
+    /*
+     * Checks the given file with the options that were given, through its signature table
+     * if the tables are kept, or as a pipeline. (See CheckOptions) The file is read as usual
+     * instead when the default charset can't be read a line at a time, and checked on this
+     * thread instead of as a pipeline when this thread already checks files in a pool.
+     */
+    private static void checkFile(String file, Diagnostics diagnostics) throws IOException, SJavaFormatException {
+        CheckOptions options = new CheckOptions().file(Paths.get(file)).recover(diagnostics)
+                .parallelMethods(parallelMethods);
+        if (pipelined && !ForkJoinTask.inForkJoinPool())
+            options.pipelined(null);
+        else if (ChannelLineReader.isSupported())
+            options.streaming(streaming).signatures(signatures);
+        new GlobalBlock(options);
+    }
+
+    /*
+     * Checks the given file and adds its first error to the given buffer, or all of its
+     * errors with "--all-errors". Returns its result code.
+     */
+    private static int check(String file, Diagnostics errors) {
+        try {
+            if (allErrors) {
+                checkFile(file, errors);
+                return errors.isEmpty() ? LEGAL_CODE : ILLEGAL_CODE;
+            }
+            checkFile(file, null);
+            return LEGAL_CODE;
+        } catch (SJavaFormatException e) {
+            errors.add(e);
+            return ILLEGAL_CODE;
+        } catch (IOException e) {
+            return IO_ERROR;
+        }
+    }
+
+    /*
+     * Checks the given file unless a result for the same content is cached.
+     * (The file is read only once, both for its key and for the check itself,
+     * unless streaming, where the file is hashed while it's checked without holding all of it)
+     */
+    private static int checkCached(String file) {
+        if (streaming && ChannelLineReader.isSupported())
+            return checkCachedStreaming(file);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(Paths.get(file));
+        } catch (IOException e) {
+            return IO_ERROR;
+        }
+        String key = ResultCache.key(content);
+        int code = cache.get(key);
+        if (code == ResultCache.MISSING) {
+            code = check(new MappedLineReader(ByteBuffer.wrap(content)));
+            cache.put(key, code);
+        }
+        return code;
+    }
+
+    /*
+     * Checks the given file in streaming mode unless a result for the same content is cached.
+     * The file is hashed while the first pass reads it, and the methods are checked only if
+     * the result of its content isn't cached. (See CheckOptions.hashed)
+     */
+    private static int checkCachedStreaming(String file) {
+        CachedResult result = new CachedResult(false);
+        int code;
+        try {
+            new GlobalBlock(hashedOptions(file, result));
+            code = LEGAL_CODE;
+        } catch (SJavaFormatException e) {
+            code = ILLEGAL_CODE;
+        } catch (IOException e) {
+            code = IO_ERROR;
+        }
+        return result.store(code);
+    }
+
+    // Returns the options of streaming the given file while hashing it for the given result.
+    private static CheckOptions hashedOptions(String file, CachedResult result) {
+        return new CheckOptions().file(Paths.get(file)).parallelMethods(parallelMethods).streaming(true)
+                .hashed(result);
+    }
+
+    // Checks all the given files and exits with the aggregate result code.
+    private static void runBatch(String[] args) {
+        int code;
+        try {
+            code = new BatchChecker().run(args);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            code = IO_ERROR;
+        }
+        System.out.println(code);
+        printTimings();
+        System.exit(code);
+    }
+
+    /*
+     * Checks the given file, or all the files in batch mode, writes their results to
+     * System.out in the format that was asked for and exits with the aggregate result code.
+     */
+    private static void runReport(String[] args) {
+        int code;
+        try (ResultWriter writer = new ResultWriter(System.out, format)) {
+            if (BatchChecker.isBatch(args))
+                code = new BatchChecker(writer).run(args);
+            else
+                code = check(args[FILE_LOCATION], writer);
+        } catch (IOException e) {
+            System.err.println(IO_ERROR_STRING);
+            code = IO_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            code = IO_ERROR;
+        }
+        printTimings();
+        System.exit(code);
+    }
+
+    /*
+     * Checks the files under the given paths as a single project, prints a result line
+     * ("code path") for each file (or writes its result in the format that was asked for)
+     * and exits with the aggregate result code.
+     */
+    private static void runProject(String[] paths) {
+        List<Path> files = new ArrayList<>();
+        try {
+            for (String path : paths)
+                try (Stream<Path> walk = Files.walk(Paths.get(path))) {
+                    walk.filter(Files::isRegularFile).forEach(files::add);
+                }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(IO_ERROR_STRING);
             System.out.println(IO_ERROR);
+            System.exit(IO_ERROR);
+        }
+        ProjectChecker checker = new ProjectChecker(allErrors);
+        checker.check(files);
+        int aggregate = LEGAL_CODE;
+        try (ResultWriter writer = format == null ? null : new ResultWriter(System.out, format)) {
+            for (int i = 0; i < files.size(); i++) {
+                Diagnostics errors = checker.getErrors(i);
+                int code = errors == null ? IO_ERROR : errors.isEmpty() ? LEGAL_CODE : ILLEGAL_CODE;
+                aggregate = Math.max(aggregate, code);
+                if (writer == null)
+                    System.out.println(code + SEPARATOR + files.get(i));
+                else
+                    writer.write(files.get(i).toString(), code, errors, checker.getNanos(i));
+            }
+        } catch (IOException e) {
+            System.err.println(IO_ERROR_STRING);
+            aggregate = IO_ERROR;
+        }
+        if (format == null)
+            System.out.println(aggregate);
+        printTimings();
+        System.exit(aggregate);
+    }
+
+    // Prints the summary of the time spent in each phase, if it was asked for.
+    private static void printTimings() {
+        if (!timings)
+            return;
+        try {
+            CheckEvents.printSummary(System.err);
+        } catch (IOException e) {
+            System.err.println(IO_ERROR_STRING);
+        }
+    }
+
+    // Answers check requests from stdin, or from a Unix domain socket if one is given.
+    private static void runServer(String[] args) {
+        CheckServer server = new CheckServer();
+        try {
+            if (args.length > SOCKET_LOCATION)
+                server.listen(Paths.get(args[SOCKET_LOCATION]));
+            else
+                server.serve(System.in, System.out);
+        } catch (IOException e) {
+            System.err.println(IO_ERROR_STRING);
+            System.exit(IO_ERROR);
+        }
+    }
+
+    /*
+     * Watches the given directories and checks every file that changes, until the process is
+     * stopped. (Incrementally, unless the results are cached or the files are streamed)
+     */
+    private static void runWatch(String[] directories) {
+        List<Path> roots = new ArrayList<>();
+        for (String directory : directories)
+            roots.add(Paths.get(directory));
+        try {
+            new FileWatcher(roots, cache == null && !streaming).watch();
+        } catch (IOException e) {
+            System.err.println(IO_ERROR_STRING);
+            System.out.println(IO_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Asks a running server to check a file and prints its result code.
+    private static void runClient(String[] args) {
+        try {
+            System.out.println(CheckServer.request(Paths.get(args[SOCKET_LOCATION]),
+                    Paths.get(args[CLIENT_FILE_LOCATION])));
         } catch (IOException e) {
             System.err.println(IO_ERROR_STRING);
             System.out.println(IO_ERROR);
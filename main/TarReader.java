@@ -0,0 +1,226 @@
+package oop.ex6.main;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the regular files of a tar archive (ustar, with GNU and pax long names) one after
+ * the other from a stream, such as the stream of a decompressed .tar.gz file. Only the
+ * headers and the content of the current entry are read, so an archive of any size is read
+ * in a single pass without extracting it. Directories, links and other entries are skipped.
+ * Nothing is read into memory unless its size is bounded: a file is only read if it isn't
+ * larger than the size it's read with, and an archive whose long name or pax records are larger
+ * than a megabyte is rejected as broken.
+ */
+class TarReader implements Closeable {
+
+    // Constants.
+    private static final int BLOCK_SIZE = 512, NAME_OFFSET = 0, NAME_LENGTH = 100, SIZE_OFFSET = 124,
+            SIZE_LENGTH = 12, CHECKSUM_OFFSET = 148, CHECKSUM_LENGTH = 8, TYPE_OFFSET = 156,
+            MAGIC_OFFSET = 257, PREFIX_OFFSET = 345, PREFIX_LENGTH = 155, OCTAL_RADIX = 8, BYTE_MASK = 0xff,
+            BINARY_FLAG = 0x80, MAX_RECORDS_SIZE = 1 << 20;
+    private static final byte REGULAR = '0', OLD_REGULAR = 0, LONG_NAME = 'L', PAX_HEADER = 'x', SPACE = ' ';
+    private static final String MAGIC = "ustar", PAX_PATH = "path", SEPARATOR = "/";
+    private static final char PAX_LENGTH_END = ' ', PAX_KEY_END = '=';
+
+    // Variables.
+    private InputStream in;
+    private byte[] header;
+    private long remaining;
+    private int padding;
+
+    /**
+     * Creates a new reader of the archive in the given stream. The stream is closed by close.
+     *
+     * @param in the stream of the (uncompressed) archive.
+     */
+    TarReader(InputStream in) {
+        this.in = in;
+        header = new byte[BLOCK_SIZE];
+    }
+
+    /**
+     * Moves to the next regular file of the archive, skipping the rest of the current one.
+     *
+     * @return the path of the file in the archive, or null if the archive has ended.
+     * @throws IOException if the archive can't be read, or isn't a tar archive.
+     */
+    String next() throws IOException {
+        String longName = null;
+        while (true) {
+            skip(remaining + padding);
+            if (!readHeader())
+                return null;
+            long size = parseSize();
+            remaining = size;
+            padding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+            byte type = header[TYPE_OFFSET];
+            if (type == LONG_NAME)
+                longName = trimName(new String(readRecords(), StandardCharsets.UTF_8));
+            else if (type == PAX_HEADER)
+                longName = paxPath(new String(readRecords(), StandardCharsets.ISO_8859_1), longName);
+            else if (type == REGULAR || type == OLD_REGULAR)
+                return longName != null ? longName : headerName();
+            else
+                longName = null; // A directory, a link or any other entry.
+        }
+    }
+
+    /**
+     * Reads the whole content of the current file, unless it's larger than the given size.
+     * (A larger file isn't read at all, and is skipped by next)
+     *
+     * @param maxSize the largest size of a file to read.
+     * @return the content of the file, or null if it's larger than the given size.
+     * @throws IOException if the archive can't be read.
+     */
+    byte[] read(int maxSize) throws IOException {
+        if (remaining > maxSize)
+            return null;
+        byte[] content = new byte[(int) remaining];
+        readFully(content);
+        remaining = 0;
+        return content;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /*
+     * Reads the next header, and returns false at the end of the archive. (An empty block,
+     * or the end of the stream right after the last file)
+     */
+    private boolean readHeader() throws IOException {
+        int read = 0;
+        while (read < BLOCK_SIZE) {
+            int count = in.read(header, read, BLOCK_SIZE - read);
+            if (count < 0) {
+                if (read == 0)
+                    return false;
+                throw new EOFException();
+            }
+            read += count;
+        }
+        long sum = 0;
+        boolean empty = true;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            empty &= header[i] == 0;
+            sum += i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH ? SPACE : header[i] & BYTE_MASK;
+        }
+        if (empty)
+            return false;
+        if (sum != parseOctal(CHECKSUM_OFFSET, CHECKSUM_LENGTH))
+            throw new IOException(); // Not a tar archive, or a broken one.
+        return true;
+    }
+
+    // Reads the content of a long name or pax header, which is rejected if it's too large.
+    private byte[] readRecords() throws IOException {
+        byte[] records = read(MAX_RECORDS_SIZE);
+        if (records == null)
+            throw new IOException(); // A broken archive, since no name is that long.
+        return records;
+    }
+
+    // Returns the name of the header, with the prefix of a ustar header.
+    private String headerName() {
+        String name = field(NAME_OFFSET, NAME_LENGTH);
+        if (!field(MAGIC_OFFSET, MAGIC.length()).equals(MAGIC))
+            return name;
+        String prefix = field(PREFIX_OFFSET, PREFIX_LENGTH);
+        return prefix.isEmpty() ? name : prefix + SEPARATOR + name;
+    }
+
+    /*
+     * Returns the path of the given pax records, or the given path if they don't have one.
+     * (The records are decoded a byte per character, since their lengths count bytes)
+     */
+    private static String paxPath(String records, String path) {
+        int start = 0;
+        while (start < records.length()) {
+            int lengthEnd = records.indexOf(PAX_LENGTH_END, start), keyEnd = records.indexOf(PAX_KEY_END, start);
+            if (lengthEnd < 0 || keyEnd < lengthEnd)
+                break;
+            int end;
+            try {
+                end = start + Integer.parseInt(records.substring(start, lengthEnd));
+            } catch (NumberFormatException e) {
+                break;
+            }
+            if (end <= keyEnd || end > records.length())
+                break;
+            if (records.substring(lengthEnd + 1, keyEnd).equals(PAX_PATH))
+                path = new String(records.substring(keyEnd + 1, end - 1).getBytes(StandardCharsets.ISO_8859_1),
+                        StandardCharsets.UTF_8); // Without the line feed.
+            start = end;
+        }
+        return path;
+    }
+
+    // Returns the size of the entry, in octal or (for huge entries) in big-endian binary.
+    private long parseSize() throws IOException {
+        if ((header[SIZE_OFFSET] & BINARY_FLAG) == 0)
+            return parseOctal(SIZE_OFFSET, SIZE_LENGTH);
+        long size = header[SIZE_OFFSET] & ~BINARY_FLAG & BYTE_MASK;
+        for (int i = SIZE_OFFSET + 1; i < SIZE_OFFSET + SIZE_LENGTH; i++)
+            size = (size << Byte.SIZE) | (header[i] & BYTE_MASK);
+        if (size < 0)
+            throw new IOException();
+        return size;
+    }
+
+    // Parses an octal number field, which ends at a space or a NUL.
+    private long parseOctal(int offset, int length) throws IOException {
+        String field = field(offset, length).trim();
+        try {
+            return field.isEmpty() ? 0 : Long.parseLong(field, OCTAL_RADIX);
+        } catch (NumberFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Returns the text of a field, up to its first NUL.
+    private String field(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0)
+            end++;
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    // Removes the NUL that GNU long names end with.
+    private static String trimName(String name) {
+        int end = name.indexOf(0);
+        return end < 0 ? name : name.substring(0, end);
+    }
+
+    // Reads exactly enough bytes to fill the given array.
+    private void readFully(byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count < 0)
+                throw new EOFException();
+            read += count;
+        }
+    }
+
+    // Skips the given number of bytes.
+    private void skip(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+        remaining = 0;
+        padding = 0;
+    }
+}
@@ -0,0 +1,103 @@
+package oop.ex6.main;
+
+import java.util.function.Predicate;
+
+/**
+ * Represents the type of a variable in an SJava file.
+ * Whether a value of one type can be assigned to a variable of another type is
+ * looked up in a table that is computed once, instead of comparing type names.
+ */
+public enum Type {
+
+    INT("int", LineScanner::isInt),
+    DOUBLE("double", LineScanner::isDouble),
+    STRING("String", LineScanner::isString),
+    BOOLEAN("boolean", LineScanner::isBoolean),
+    CHAR("char", LineScanner::isChar);
+
+    // Constants.
+    private static final String TRUE = "true", FALSE = "false";
+    private static final Type[] TYPES = values();
+    // ASSIGNABLE[to][from] is true if a value of type 'from' can be assigned to a variable of type 'to'.
+    private static final boolean[][] ASSIGNABLE = new boolean[TYPES.length][TYPES.length];
+
+    static {
+        for (Type type : TYPES)
+            ASSIGNABLE[type.ordinal()][type.ordinal()] = true;
+        ASSIGNABLE[DOUBLE.ordinal()][INT.ordinal()] = true;
+        ASSIGNABLE[BOOLEAN.ordinal()][INT.ordinal()] = true;
+        ASSIGNABLE[BOOLEAN.ordinal()][DOUBLE.ordinal()] = true;
+    }
+
+    // Variables.
+    private final String name;
+    private final Predicate<String> valueChecker;
+
+    Type(String name, Predicate<String> valueChecker) {
+        this.name = name;
+        this.valueChecker = valueChecker;
+    }
+
+    /**
+     * Returns the type with the given name, or null if there isn't one.
+     *
+     * @param name the name of the type, as it's written in SJava.
+     * @return the type with the given name.
+     */
+    public static Type fromName(String name) {
+        for (Type type : TYPES)
+            if (type.name.equals(name))
+                return type;
+        return null;
+    }
+
+    /**
+     * Returns the type of the given literal value. (Returns null if it isn't a valid value)
+     *
+     * @param value the value to check.
+     * @return the type of the value.
+     */
+    public static Type ofValue(String value) {
+        if (LineScanner.isChar(value))
+            return CHAR;
+        if (LineScanner.isString(value))
+            return STRING;
+        if (LineScanner.isInt(value))
+            return INT;
+        if (LineScanner.isDouble(value))
+            return DOUBLE;
+        if (value.equals(TRUE) || value.equals(FALSE))
+            return BOOLEAN;
+        return null;
+    }
+
+    /**
+     * Returns true if a value of the given type can be assigned to a variable of this type.
+     *
+     * @param type the type of the value.
+     * @return true if the value can be assigned.
+     */
+    public boolean accepts(Type type) {
+        return ASSIGNABLE[ordinal()][type.ordinal()];
+    }
+
+    /**
+     * Returns true if the given literal value can be assigned to a variable of this type.
+     *
+     * @param value the value to check.
+     * @return true if the value is a valid value of this type.
+     */
+    public boolean isValue(String value) {
+        return valueChecker.test(value);
+    }
+
+    /**
+     * Returns the name of this type, as it's written in SJava.
+     *
+     * @return the name of this type.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,103 +1,65 @@
 package oop.ex6.main;
 
 import oop.ex6.blocks.Block;
+import oop.ex6.main.SJavaFormatException.Kind;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Represents a variable in an SJava file.
+ * The variables of a definition line (or of a method's parameters) are read one after the
+ * other in a single scan of the line, so long lists take linear time and constant stack.
  */
 public class Variable {
 
     // Constants.
-    private static final String INT = "int", DOUBLE = "double", STRING = "String",
-            BOOLEAN = "boolean", CHAR = "char", UNDERSCORE = "_", TRUE = "true", FALSE = "false";
+    private static final String UNDERSCORE = "_";
     private static final int FINAL_GROUP = 1, TYPE_GROUP = 2, NAME_GROUP = 3, DECLARATION_GROUP = 4,
-            VALUE_GROUP = 5, NEXT_VARIABLE_GROUP = 6, METHOD_NEXT_GROUP = 4, ADJUST = 2, NO_ADJUST = 0;
-
-    // Regular Expressions
-    private static final String LINE_START_REGEX = "(final\\s+)?(int|String|boolean|double|char)\\s+",
-            VARIABLE_REGEX = "([a-zA-Z_]\\w*)(\\s*=\\s*([^;,]+))?(?:;|,\\s*([^;\\s]+)\\s*;)",
-            INITIAL_REGEX = LINE_START_REGEX + VARIABLE_REGEX,
-            METHOD_REGEX = LINE_START_REGEX + "([a-zA-Z_]\\w*)\\s*(?:,\\s*(.+))?",
-            INT_REGEX = "-?\\d++", DOUBLE_REGEX = INT_REGEX + "(\\.\\d++)?",
-            STRING_REGEX = "\"[^\"]*+\"", CHAR_REGEX = "\'[^\']\'",
-            BOOLEAN_REGEX = "false|true|" + DOUBLE_REGEX;
-    private static final Pattern INITIAL_PATTERN = Pattern.compile(INITIAL_REGEX),
-            NEXT_PATTERN = Pattern.compile(VARIABLE_REGEX),
-            METHOD_PATTERN = Pattern.compile(METHOD_REGEX),
-            INTEGER_PATTERN = Pattern.compile(INT_REGEX),
-            DOUBLE_PATTERN = Pattern.compile(DOUBLE_REGEX),
-            STRING_PATTERN = Pattern.compile(STRING_REGEX),
-            CHAR_PATTERN = Pattern.compile(CHAR_REGEX),
-            BOOLEAN_PATTERN = Pattern.compile(BOOLEAN_REGEX);
+            VALUE_GROUP = 5;
 
     // Variables.
-    private String name, type;
-    private Pattern typeChecker;
-    private boolean isFinal, assigned, revert;
-    private LinkedList<Variable> variableList;
-    private Block container;
-
-    // Creates new independent variable.
-    private Variable(String command, Block container) throws SJavaFormatException {
-        Matcher matcher = INITIAL_PATTERN.matcher(command);
-        if (!matcher.matches())
-            throw new SJavaFormatException(); // Variable definition incorrect.
-        isFinal = matcher.group(FINAL_GROUP) != null;
-        this.container = container;
-        type = matcher.group(TYPE_GROUP);
-        typeChecker = typeCheckerFactory(type);
-        variableList = new LinkedList<>();
-        variableList.add(this);
-        handleMatcher(matcher, NO_ADJUST);
-    }
+    private String name;
+    private Type type;
+    private boolean isFinal, assigned;
 
-    /*
-     * Creates new variable that shares its type and whether it's final
-     * a previous variable. (Corresponds to the 2nd and beyond variables in the
-     * format: type variable1, variable2, variable3...)
+    /**
+     * Creates a new variable that has already been declared, such as a global variable that
+     * was read from a SignatureTable.
+     *
+     * @param name     the name of the variable.
+     * @param type     the type of the variable.
+     * @param isFinal  whether the variable is final.
+     * @param assigned whether the variable is assigned.
      */
-    private Variable(String command, String type, Pattern typeChecker, boolean isFinal,
-                     LinkedList<Variable> variableList, Block container) throws SJavaFormatException {
+    public Variable(String name, Type type, boolean isFinal, boolean assigned) {
+        this.name = name;
         this.type = type;
-        this.typeChecker = typeChecker;
         this.isFinal = isFinal;
-        this.variableList = variableList;
-        this.container = container;
-        Matcher matcher = NEXT_PATTERN.matcher(command);
-        if (!matcher.matches())
-            throw new SJavaFormatException(); // Variable definition incorrect.
-        handleMatcher(matcher, ADJUST);
-    }
-
-    // Creates new independent variable. (Method definition version)
-    private Variable(String command, LinkedList<Variable> variableList) throws SJavaFormatException {
-        Matcher matcher = METHOD_PATTERN.matcher(command);
-        if (!matcher.matches())
-            throw new SJavaFormatException(); // Variable definition incorrect.
-        this.variableList = variableList;
-        assigned = true;
-        isFinal = matcher.group(FINAL_GROUP) != null;
-        type = matcher.group(TYPE_GROUP);
-        typeChecker = typeCheckerFactory(type);
-        name = matcher.group(NAME_GROUP);
-        variableList.add(this);
-        String moreVariables = matcher.group(METHOD_NEXT_GROUP);
-        if (moreVariables != null)
-            new Variable(moreVariables, variableList);
+        this.assigned = assigned;
     }
 
     /**
      * Interprets a line and returns a list of variables that are defined in that line.
+     * (format: type variable1, variable2 = value, variable3...;)
+     * (The ',' or ';' after each variable must follow its name or value right away)
      *
      * @return a list of variables.
      */
-    public static List<Variable> interpretVariables(String command, Block container) throws SJavaFormatException {
-        return new Variable(command, container).variableList;
+    public static List<Variable> interpretVariables(CharSequence command, Block container)
+            throws SJavaFormatException {
+        LineScanner scanner = new LineScanner();
+        if (!scanner.matchDefinition(command))
+            throw new SJavaFormatException(Kind.INVALID_VARIABLE_DEFINITION); // Variable definition incorrect.
+        boolean isFinal = scanner.group(FINAL_GROUP) != null;
+        Type type = typeFromName(scanner.group(TYPE_GROUP));
+        List<Variable> variableList = new ArrayList<>();
+        do {
+            if (!scanner.nextVariable()) // Variable definition incorrect.
+                throw new SJavaFormatException(Kind.INVALID_VARIABLE_DEFINITION).atOffset(scanner.position());
+            variableList.add(handleScanner(scanner, type, isFinal, container));
+        } while (scanner.hasNext());
+        return variableList;
     }
 
     /**
@@ -106,8 +68,17 @@ public class Variable {
      *
      * @return a list of variables.
      */
-    public static List<Variable> interpretVariables(String methodParameters) throws SJavaFormatException {
-        return new Variable(methodParameters.trim(), new LinkedList<>()).variableList;
+    public static List<Variable> interpretParameters(String methodParameters) throws SJavaFormatException {
+        LineScanner scanner = new LineScanner();
+        scanner.matchParameters(methodParameters);
+        List<Variable> variableList = new ArrayList<>();
+        do {
+            if (!scanner.nextParameter()) // Variable definition incorrect.
+                throw new SJavaFormatException(Kind.INVALID_VARIABLE_DEFINITION).atOffset(scanner.position());
+            variableList.add(new Variable(scanner.group(NAME_GROUP), typeFromName(scanner.group(TYPE_GROUP)),
+                    scanner.group(FINAL_GROUP) != null, true));
+        } while (scanner.hasNext());
+        return variableList;
     }
 
     /**
@@ -117,78 +88,48 @@ public class Variable {
      * @return true if value isn't of type boolean. Otherwise, return false.
      */
     public static boolean notBoolean(String value) throws SJavaFormatException {
-        return !BOOLEAN_PATTERN.matcher(value).matches();
+        return !LineScanner.isBoolean(value);
     }
 
     /**
-     * Throws an SJavaException if value doesn't equal boolean.
+     * Throws an SJavaException if the given type isn't boolean.
      *
-     * @param value the value to check.
+     * @param value the type to check.
      */
-    public static void equalsBoolean(String value) throws SJavaFormatException {
-        if (!value.equals(BOOLEAN))
-            throw new SJavaFormatException();
+    public static void equalsBoolean(Type value) throws SJavaFormatException {
+        if (value != Type.BOOLEAN)
+            throw new SJavaFormatException(Kind.INVALID_CONDITION);
     }
 
-    /**
-     * Returns the type of the value. (Returns null if the type isn't valid)
-     *
-     * @param value the value to check.
-     * @return the type of the value. (Returns null if the type isn't valid)
-     */
-    public static String parse(String value) {
-        if (CHAR_PATTERN.matcher(value).matches())
-            return CHAR;
-        if (STRING_PATTERN.matcher(value).matches())
-            return STRING;
-        if (INTEGER_PATTERN.matcher(value).matches())
-            return INT;
-        if (DOUBLE_PATTERN.matcher(value).matches())
-            return DOUBLE;
-        if (value.equals(TRUE) || value.equals(FALSE))
-            return BOOLEAN;
-        return null;
-    }
-
-    // Factory method that returns the correct pattern according to the type.
-    private static Pattern typeCheckerFactory(String typeString) throws SJavaFormatException {
-        switch (typeString) {
-            case INT:
-                return INTEGER_PATTERN;
-            case DOUBLE:
-                return DOUBLE_PATTERN;
-            case STRING:
-                return STRING_PATTERN;
-            case BOOLEAN:
-                return BOOLEAN_PATTERN;
-            case CHAR:
-                return CHAR_PATTERN;
-            default:
-                throw new SJavaFormatException(); // Invalid type.
-        }
+    // Returns the type with the given name, or throws an SJavaFormatException if there isn't one.
+    private static Type typeFromName(String typeString) throws SJavaFormatException {
+        Type type = Type.fromName(typeString);
+        if (type == null)
+            throw new SJavaFormatException(Kind.INVALID_TYPE); // Invalid type.
+        return type;
     }
 
-    /*
-     * Handles the information that is given by the matcher's groups.
-     * (Adjusts the group numbers according to whether this is an independent
-     * variable or another variable on the same line.)
-     */
-    private void handleMatcher(Matcher matcher, int adjust) throws SJavaFormatException {
-        name = matcher.group(NAME_GROUP - adjust);
-        if (name.equals(UNDERSCORE))
-            throw new SJavaFormatException(); // Name can't be '_'.
-        assigned = revert = matcher.group(DECLARATION_GROUP - adjust) != null;
-        String value = matcher.group(VALUE_GROUP - adjust);
-        if (assigned && !typeChecker.matcher(value).matches()) {
+    // Creates the variable that the scanner has matched, from the information in the scanner's groups.
+    private static Variable handleScanner(LineScanner scanner, Type type, boolean isFinal, Block container)
+            throws SJavaFormatException {
+        String name = scanner.group(NAME_GROUP);
+        if (name.equals(UNDERSCORE)) // Name can't be '_'.
+            throw new SJavaFormatException(Kind.INVALID_NAME).atOffset(scanner.start(NAME_GROUP));
+        boolean assigned = scanner.group(DECLARATION_GROUP) != null;
+        String value = scanner.group(VALUE_GROUP);
+        if (assigned && !type.isValue(value)) {
             // Value type not recognized so checks if it's an existing variable.
-            String type = container.getVariableType(value);
-            if (type == null || !this.type.equals(type))
-                throw new SJavaFormatException();
+            try {
+                if (!LineScanner.isName(value))
+                    throw new SJavaFormatException(Kind.TYPE_MISMATCH); // A value of another type.
+                Type valueType = container.getVariableType(value);
+                if (valueType == null || !type.accepts(valueType))
+                    throw new SJavaFormatException(Kind.TYPE_MISMATCH);
+            } catch (SJavaFormatException e) {
+                throw e.atOffset(scanner.start(VALUE_GROUP));
+            }
         }
-        String moreVariables = matcher.group(NEXT_VARIABLE_GROUP - adjust);
-        if (moreVariables != null)
-            variableList.add(new Variable(moreVariables, type, typeChecker, isFinal,
-                    variableList, container));
+        return new Variable(name, type, isFinal, assigned);
     }
 
     /**
@@ -196,33 +137,30 @@ public class Variable {
      * Otherwise, throws SJavaFormatException.
      *
      * @param value the value or the name of the variable whose value to assign to this variable.
+     * @param scope the Block to look for the variable named by value in.
      */
-    public void assign(String value) throws SJavaFormatException {
-        if (isFinal)
-            throw new SJavaFormatException(); // Can't assign to final variable.
-        if (!typeChecker.matcher(value).matches()) {
-            String type = container.getVariableType(value);
-            if (type == null)
-                throw new SJavaFormatException();
-            if (!this.type.equals(type))
-                switch (this.type) {
-                    case BOOLEAN:
-                        if (type.equals(DOUBLE))
-                            break;
-                    case DOUBLE:
-                        if (type.equals(INT))
-                            break;
-                        throw new SJavaFormatException();
-                }
-        }
+    public void assign(String value, Block scope) throws SJavaFormatException {
+        checkAssignment(value, scope);
         assigned = true;
     }
 
     /**
-     * Reverts the variable to it's original assignment state.
+     * Throws an SJavaFormatException if the given value can't be assigned to this variable.
+     * Doesn't change the assignment state of this variable.
+     *
+     * @param value the value or the name of the variable whose value to assign to this variable.
+     * @param scope the Block to look for the variable named by value in.
      */
-    public void revert() {
-        assigned = revert;
+    public void checkAssignment(String value, Block scope) throws SJavaFormatException {
+        if (isFinal)
+            throw new SJavaFormatException(Kind.FINAL_ASSIGNMENT); // Can't assign to final variable.
+        if (!type.isValue(value)) {
+            if (!LineScanner.isName(value))
+                throw new SJavaFormatException(Kind.TYPE_MISMATCH); // A value of another type.
+            Type type = scope.getVariableType(value);
+            if (type == null || !this.type.accepts(type))
+                throw new SJavaFormatException(Kind.TYPE_MISMATCH);
+        }
     }
 
     /**
@@ -231,7 +169,36 @@ public class Variable {
      */
     public void use() throws SJavaFormatException {
         if (!assigned)
-            throw new SJavaFormatException(); // Can't use uninitialized variable.
+            throw new SJavaFormatException(Kind.UNASSIGNED_VARIABLE); // Can't use uninitialized variable.
+    }
+
+    /**
+     * Returns true if the given variable has the same type as this variable, and is final
+     * and assigned the same way.
+     *
+     * @param other the variable to compare with.
+     * @return true if both variables are declared the same way.
+     */
+    public boolean sameDeclaration(Variable other) {
+        return type == other.type && isFinal == other.isFinal && assigned == other.assigned;
+    }
+
+    /**
+     * Returns true if this variable is final.
+     *
+     * @return true if this variable is final.
+     */
+    public boolean isFinal() {
+        return isFinal;
+    }
+
+    /**
+     * Returns true if this variable has been assigned.
+     *
+     * @return true if this variable has been assigned.
+     */
+    public boolean isAssigned() {
+        return assigned;
     }
 
     /**
@@ -239,7 +206,7 @@ public class Variable {
      *
      * @return the type of this variable.
      */
-    public String getType() {
+    public Type getType() {
         return type;
     }
 